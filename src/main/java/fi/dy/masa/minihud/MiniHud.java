@@ -8,7 +8,9 @@ import net.minecraftforge.fml.common.event.FMLFingerprintViolationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import fi.dy.masa.minihud.config.Configs;
 import fi.dy.masa.minihud.event.RenderEventHandler;
+import fi.dy.masa.minihud.info.InfoProviders;
 import fi.dy.masa.minihud.proxy.CommonProxy;
+import fi.dy.masa.minihud.util.InitTimings;
 
 @Mod(modid = Reference.MOD_ID, name = Reference.MOD_NAME, version = Reference.MOD_VERSION, certificateFingerprint = Reference.FINGERPRINT,
     guiFactory = "fi.dy.masa.minihud.config.MiniHudGuiFactory",
@@ -29,11 +31,28 @@ public class MiniHud
     {
         instance = this;
 
+        long start = System.nanoTime();
+        InfoProviders.registerDefaults();
+        start = recordInitStep("Info providers", start);
+
         Configs.loadConfigsFromFile(event.getSuggestedConfigurationFile());
-        RenderEventHandler.getInstance().setEnabled(Configs.enableByDefault);
+        start = recordInitStep("Configs", start);
+
+        RenderEventHandler.getInstance().setEnabled(Configs.getSnapshot().enableByDefault);
+        start = recordInitStep("Render handler", start);
 
         proxy.registerKeyBindings();
         proxy.registerEventHandlers();
+        recordInitStep("Key bindings and event handlers", start);
+
+        InitTimings.logReport();
+    }
+
+    private static long recordInitStep(String name, long start)
+    {
+        long now = System.nanoTime();
+        InitTimings.recordInitStep(name, now - start);
+        return now;
     }
 
     @Mod.EventHandler
@@ -12,4 +12,6 @@ public class Reference
     public static final String KEYBIND_CATEGORY_MINIHUD = "category." + Reference.MOD_ID;
     public static final String KEYBIND_NAME_TOGGLE_MODE = Reference.MOD_ID + ".key.togglemode";
     public static final int DEFAULT_KEYBIND_TOGGLE_MODE = Keyboard.KEY_H;
+    public static final String KEYBIND_NAME_DUMP_PROFILER = Reference.MOD_ID + ".key.dumpprofiler";
+    public static final int DEFAULT_KEYBIND_DUMP_PROFILER = Keyboard.KEY_NONE;
 }
@@ -0,0 +1,225 @@
+package fi.dy.masa.minihud.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.common.config.Configuration;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * Watches the config file for changes made outside of the game, and applies them.
+ * The file gets parsed (from a copy) on a background thread once the writes have settled down,
+ * and the resulting values and ConfigSnapshot are then applied on the client thread,
+ * so the client thread never waits for the file I/O or the parsing.
+ * The saves done by MiniHud itself are ignored.
+ */
+public class ConfigFileWatcher
+{
+    /** The file is only re-read once there have been no further changes for this long */
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private static Thread thread;
+    /** The modification time and the length of the config file after the last save by MiniHud */
+    private static volatile long[] savedFileState;
+
+    private final File file;
+    private final WatchService watchService;
+
+    private ConfigFileWatcher(File file, WatchService watchService)
+    {
+        this.file = file;
+        this.watchService = watchService;
+    }
+
+    /**
+     * Starts watching the given config file, if not already watching
+     */
+    public static void start(File file)
+    {
+        if (thread != null)
+        {
+            return;
+        }
+
+        try
+        {
+            final File dir = file.getAbsoluteFile().getParentFile();
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            final ConfigFileWatcher watcher = new ConfigFileWatcher(file.getAbsoluteFile(), watchService);
+
+            thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    watcher.watch();
+                }
+            }, "MiniHud config watcher");
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+        catch (IOException e)
+        {
+            MiniHud.logger.warn("Failed to start watching the config file '{}'", file, e);
+        }
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                if (this.hasFileChanged(this.watchService.take()) == false)
+                {
+                    continue;
+                }
+
+                // Wait for the burst of writes (editors often write the file in multiple steps) to end
+                WatchKey key;
+
+                while ((key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                {
+                    this.hasFileChanged(key);
+                }
+
+                this.reload();
+            }
+        }
+        catch (InterruptedException e)
+        {
+        }
+        catch (ClosedWatchServiceException e)
+        {
+        }
+    }
+
+    /**
+     * Consumes the events of the key and resets it
+     * @return true if any of the events were for the config file
+     */
+    private boolean hasFileChanged(WatchKey key)
+    {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            Object context = event.context();
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                (context instanceof Path && ((Path) context).getFileName().toString().equals(this.file.getName())))
+            {
+                changed = true;
+            }
+        }
+
+        key.reset();
+
+        return changed;
+    }
+
+    private void reload()
+    {
+        if (this.file.isFile() == false || this.file.length() == 0)
+        {
+            MiniHud.logger.warn("The changed config file '{}' is empty or missing, keeping the current configs", this.file.getName());
+            return;
+        }
+
+        if (this.isOwnSave())
+        {
+            return;
+        }
+
+        File dir = null;
+
+        try
+        {
+            // Only the copy gets parsed. The Configuration renames the file if it fails to parse it,
+            // which shouldn't happen to the actual config file just because it was saved mid-edit.
+            dir = Files.createTempDirectory("minihud_config").toFile();
+            File copy = new File(dir, this.file.getName());
+            Files.copy(this.file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            final long length = copy.length();
+
+            // The constructor loads the file
+            final Configuration conf = new Configuration(copy, null, true);
+
+            // The Configuration replaces a broken file with an empty one, instead of failing
+            if (copy.length() != length || conf.hasCategory(Configs.CATEGORY_GENERIC) == false)
+            {
+                MiniHud.logger.warn("The changed config file '{}' is invalid, keeping the current configs", this.file.getName());
+                return;
+            }
+
+            final ConfigSnapshot snapshot = Configs.readConfigs(conf);
+
+            Minecraft.getMinecraft().addScheduledTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Configs.applyReloadedConfigs(conf, snapshot);
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            MiniHud.logger.warn("Failed to reload the config file '{}'", this.file.getName(), e);
+        }
+        finally
+        {
+            if (dir != null)
+            {
+                deleteDirectory(dir);
+            }
+        }
+    }
+
+    /**
+     * Records the state of the config file after MiniHud itself has saved it,
+     * so that the save doesn't get re-loaded as an outside change
+     */
+    public static void onConfigSaved(File file)
+    {
+        savedFileState = new long[] { file.lastModified(), file.length() };
+    }
+
+    /**
+     * @return true if the file is still as MiniHud last saved it
+     */
+    private boolean isOwnSave()
+    {
+        final long[] state = savedFileState;
+
+        return state != null && this.file.lastModified() == state[0] && this.file.length() == state[1];
+    }
+
+    private static void deleteDirectory(File dir)
+    {
+        File[] files = dir.listFiles();
+
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+
+        dir.delete();
+    }
+}
@@ -0,0 +1,205 @@
+package fi.dy.masa.minihud.config;
+
+import java.util.Arrays;
+import net.minecraftforge.client.settings.KeyModifier;
+import fi.dy.masa.minihud.event.RenderEventHandler.HudAlignment;
+import fi.dy.masa.minihud.util.FormatProgram;
+
+/**
+ * An immutable set of the config values, with the derived values (like the float color
+ * components and the hotkey tables) already computed. A new snapshot is created on every
+ * config (re-)load and published via Configs.getSnapshot(), so the readers always see
+ * a consistent set of values by grabbing the current snapshot once.
+ */
+public class ConfigSnapshot
+{
+    /** The LWJGL key codes are all below this */
+    private static final int KEY_CODE_COUNT = 256;
+
+    public final boolean enableByDefault;
+    public final boolean sortLinesByLength;
+    public final boolean sortLinesReversed;
+    public final boolean coordinateFormatCustomized;
+    public final boolean requireSneak;
+    public final boolean requireHoldingKey;
+    public final boolean useFontShadow;
+    public final boolean useTextBackground;
+    public final boolean debugRendererPathfindingEnablePointWidth;
+    public final boolean watchConfigFile;
+
+    /** The font scale in use, ie. 0.5 if useScaledFont is enabled, otherwise the fontScale config value */
+    public final double fontScale;
+
+    public final long enabledInfoTypes;
+    public final int fontColor;
+    public final int infoUpdateBudgetNanos;
+    public final int textBackgroundColor;
+    public final int textPosX;
+    public final int textPosY;
+
+    public final int regionOverlayColor;
+    public final float regionOverlayRed;
+    public final float regionOverlayGreen;
+    public final float regionOverlayBlue;
+    public final float regionOverlayAlpha;
+
+    public final FormatProgram coordinateFormatProgram;
+    public final FormatProgram dateFormatMinecraftProgram;
+    public final FormatProgram dateFormatRealProgram;
+
+    public final HudAlignment hudAlignment;
+    public final KeyModifier requiredKey;
+
+    private final long[] infoHotkeyMasks;
+    private final long[] debugHotkeyMasks;
+    private final int[] linePositions;
+    private final int[] refreshIntervals;
+
+    private ConfigSnapshot(Builder builder)
+    {
+        this.enableByDefault = builder.enableByDefault;
+        this.sortLinesByLength = builder.sortLinesByLength;
+        this.sortLinesReversed = builder.sortLinesReversed;
+        this.coordinateFormatCustomized = builder.coordinateFormatCustomized;
+        this.requireSneak = builder.requireSneak;
+        this.requireHoldingKey = builder.requireHoldingKey;
+        this.useFontShadow = builder.useFontShadow;
+        this.useTextBackground = builder.useTextBackground;
+        this.debugRendererPathfindingEnablePointWidth = builder.debugRendererPathfindingEnablePointWidth;
+        this.watchConfigFile = builder.watchConfigFile;
+        this.fontScale = builder.useScaledFont ? 0.5d : builder.fontScale;
+        this.enabledInfoTypes = builder.enabledInfoTypes;
+        this.fontColor = builder.fontColor;
+        this.infoUpdateBudgetNanos = builder.infoUpdateBudgetNanos;
+        this.textBackgroundColor = builder.textBackgroundColor;
+        this.textPosX = builder.textPosX;
+        this.textPosY = builder.textPosY;
+
+        this.regionOverlayColor = builder.regionOverlayColor;
+        this.regionOverlayAlpha = ((builder.regionOverlayColor >>> 24) & 0xFF) / 255f;
+        this.regionOverlayRed   = ((builder.regionOverlayColor >>> 16) & 0xFF) / 255f;
+        this.regionOverlayGreen = ((builder.regionOverlayColor >>>  8) & 0xFF) / 255f;
+        this.regionOverlayBlue  = ((builder.regionOverlayColor       ) & 0xFF) / 255f;
+
+        this.coordinateFormatProgram = builder.coordinateFormatProgram;
+        this.dateFormatMinecraftProgram = builder.dateFormatMinecraftProgram;
+        this.dateFormatRealProgram = builder.dateFormatRealProgram;
+        this.hudAlignment = builder.hudAlignment;
+        this.requiredKey = builder.requiredKey;
+
+        this.infoHotkeyMasks = builder.infoHotkeyMasks.clone();
+        this.debugHotkeyMasks = builder.debugHotkeyMasks.clone();
+        this.linePositions = builder.linePositions.clone();
+        this.refreshIntervals = builder.refreshIntervals.clone();
+    }
+
+    /**
+     * @return the combined bitmask of all the info types and overlays toggled by the given key
+     */
+    public long getInfoHotkeyMask(int keyCode)
+    {
+        return keyCode >= 0 && keyCode < KEY_CODE_COUNT ? this.infoHotkeyMasks[keyCode] : 0L;
+    }
+
+    /**
+     * @return the combined bitmask of all the debug renderers toggled by the given key
+     */
+    public long getDebugHotkeyMask(int keyCode)
+    {
+        return keyCode >= 0 && keyCode < KEY_CODE_COUNT ? this.debugHotkeyMasks[keyCode] : 0L;
+    }
+
+    /**
+     * @return the configured line position of the given info type, or -1 if it hasn't been set
+     */
+    public int getLinePosition(int type)
+    {
+        return type < this.linePositions.length ? this.linePositions[type] : -1;
+    }
+
+    /**
+     * @return the refresh interval of the given info type in milliseconds, 0 meaning every game tick
+     */
+    public int getRefreshInterval(int type)
+    {
+        return type < this.refreshIntervals.length ? this.refreshIntervals[type] : 0;
+    }
+
+    /**
+     * The mutable values that the snapshot gets created from while the configs are being read
+     */
+    static class Builder
+    {
+        boolean enableByDefault = true;
+        boolean sortLinesByLength;
+        boolean sortLinesReversed;
+        boolean coordinateFormatCustomized;
+        boolean requireSneak;
+        boolean requireHoldingKey;
+        boolean useFontShadow;
+        boolean useScaledFont;
+        boolean useTextBackground;
+        boolean debugRendererPathfindingEnablePointWidth;
+        boolean watchConfigFile;
+        double fontScale = 1d;
+        long enabledInfoTypes;
+        int fontColor = 0xE0E0E0;
+        int infoUpdateBudgetNanos;
+        int regionOverlayColor = 0xFFFF8019;
+        int textBackgroundColor = 0xA0505050;
+        int textPosX;
+        int textPosY;
+        FormatProgram coordinateFormatProgram = FormatProgram.literal("");
+        FormatProgram dateFormatMinecraftProgram = FormatProgram.literal("");
+        FormatProgram dateFormatRealProgram = FormatProgram.literal("");
+        HudAlignment hudAlignment = HudAlignment.TOP_LEFT;
+        KeyModifier requiredKey = KeyModifier.NONE;
+        private final long[] infoHotkeyMasks = new long[KEY_CODE_COUNT];
+        private final long[] debugHotkeyMasks = new long[KEY_CODE_COUNT];
+        private int[] linePositions = new int[0];
+        private int[] refreshIntervals = new int[0];
+
+        void addInfoHotkey(int keyCode, long mask)
+        {
+            if (keyCode >= 0 && keyCode < KEY_CODE_COUNT)
+            {
+                this.infoHotkeyMasks[keyCode] |= mask;
+            }
+        }
+
+        void addDebugHotkey(int keyCode, long mask)
+        {
+            if (keyCode >= 0 && keyCode < KEY_CODE_COUNT)
+            {
+                this.debugHotkeyMasks[keyCode] |= mask;
+            }
+        }
+
+        void setLinePosition(int type, int position)
+        {
+            if (type >= this.linePositions.length)
+            {
+                int oldLength = this.linePositions.length;
+                this.linePositions = Arrays.copyOf(this.linePositions, type + 1);
+                Arrays.fill(this.linePositions, oldLength, type + 1, -1);
+            }
+
+            this.linePositions[type] = position;
+        }
+
+        void setRefreshInterval(int type, int interval)
+        {
+            if (type >= this.refreshIntervals.length)
+            {
+                this.refreshIntervals = Arrays.copyOf(this.refreshIntervals, type + 1);
+            }
+
+            this.refreshIntervals[type] = interval;
+        }
+
+        ConfigSnapshot build()
+        {
+            return new ConfigSnapshot(this);
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package fi.dy.masa.minihud.config;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.lwjgl.input.Keyboard;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import net.minecraft.util.math.MathHelper;
 import net.minecraftforge.client.settings.KeyModifier;
 import net.minecraftforge.common.config.ConfigCategory;
@@ -16,45 +11,24 @@ import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
 import net.minecraftforge.fml.client.event.ConfigChangedEvent.OnConfigChangedEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import fi.dy.masa.minihud.MiniHud;
 import fi.dy.masa.minihud.Reference;
 import fi.dy.masa.minihud.event.InputEventHandler;
 import fi.dy.masa.minihud.event.RenderEventHandler;
 import fi.dy.masa.minihud.event.RenderEventHandler.HudAlignment;
+import fi.dy.masa.minihud.info.InfoRegistry;
+import fi.dy.masa.minihud.metrics.FrameTimes;
+import fi.dy.masa.minihud.metrics.JvmSampler;
+import fi.dy.masa.minihud.metrics.ThreadCpuSampler;
+import fi.dy.masa.minihud.util.FormatProgram;
 
 public class Configs
 {
-    public static boolean enableByDefault;
-    public static boolean sortLinesByLength;
-    public static boolean sortLinesReversed;
-    public static boolean coordinateFormatCustomized;
-    public static boolean requireSneak;
-    public static boolean requireHoldingKey;
-    public static boolean useFontShadow;
-    public static boolean useScaledFont;
-    public static boolean useTextBackground;
-
-    public static boolean debugRendererPathfindingEnablePointWidth;
-
-    private static double fontScale;
-    public static double activeFontScale;
-
-    public static int enabledInfoTypes;
-    public static int fontColor;
-    public static int regionOverlayColor;
-    public static int textBackgroundColor;
-    public static int textPosX;
-    public static int textPosY;
-
-    public static String coordinateFormat;
-    public static String dateFormatMinecraft;
-    public static String dateFormatReal;
-
-    public static HudAlignment hudAlignment = HudAlignment.TOP_LEFT;
-
-    public static KeyModifier requiredKey;
-    private static final Multimap<Integer, Long> HOTKEY_DEBUG_MAP = HashMultimap.create();
-    private static final Multimap<Integer, Long> HOTKEY_INFO_MAP = HashMultimap.create();
-    private static final Map<Long, Integer> LINE_ORDER_MAP = new HashMap<>();
+    public static final String[] MINECRAFT_TIME_PLACEHOLDERS = new String[] { "DAY", "HOUR", "MIN", "SEC" };
+    private static final int[] MINECRAFT_TIME_MIN_DIGITS = new int[] { 1, 2, 2, 2 };
+    private static final Pattern PATTERN_HEX_COLOR = Pattern.compile("(?:0x|#)([a-fA-F0-9]{1,8})");
+
+    private static volatile ConfigSnapshot snapshot = new ConfigSnapshot.Builder().build();
 
     public static File configurationFile;
     public static Configuration config;
@@ -65,6 +39,7 @@ public class Configs
     public static final String CATEGORY_INFO_TOGGLE = "InfoTypes";
     public static final String CATEGORY_INFO_HOTKEYS = "InfoToggleHotkeys";
     public static final String CATEGORY_INFO_LINE_ORDER = "InfoLineOrder";
+    public static final String CATEGORY_INFO_REFRESH_INTERVALS = "InfoRefreshIntervals";
     public static final String CATEGORY_RENDERER_HOTKEYS = "RenderHotkeys";
 
     @SubscribeEvent
@@ -87,218 +62,362 @@ public class Configs
 
     public static void loadConfigs(Configuration conf)
     {
+        applySnapshot(readConfigs(conf));
+
+        if (conf.hasChanged())
+        {
+            conf.save();
+            ConfigFileWatcher.onConfigSaved(conf.getConfigFile());
+        }
+    }
+
+    /**
+     * Publishes the given config values, and updates the things that depend on them.
+     * Must be called on the client thread.
+     */
+    static void applySnapshot(ConfigSnapshot newSnapshot)
+    {
+        ConfigSnapshot oldSnapshot = snapshot;
+        snapshot = newSnapshot;
+
+        // Only when the configured info types change, so that a reload doesn't reset the types toggled with the hotkeys
+        if (newSnapshot.enabledInfoTypes != oldSnapshot.enabledInfoTypes)
+        {
+            RenderEventHandler.getInstance().setEnabledMask(newSnapshot.enabledInfoTypes);
+        }
+        else
+        {
+            RenderEventHandler.getInstance().onConfigsChanged();
+        }
+    }
+
+    /**
+     * Reads the config values into a new snapshot. This only touches the given Configuration
+     * (adding any missing entries), so it can also be called off the client thread.
+     */
+    static ConfigSnapshot readConfigs(Configuration conf)
+    {
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder();
         Property prop;
 
         prop = conf.get(CATEGORY_GENERIC, "coordinateFormat", "x: %.1f y: %.1f z: %.1f");
         prop.setComment("The format string for the coordinate line (needs to have three %f format strings!) Default: x: %.1f y: %.1f z: %.1f");
-        coordinateFormat = prop.getString();
+        String coordinateFormat = prop.getString();
 
         prop = conf.get(CATEGORY_GENERIC, "coordinateFormatCustomized", true);
         prop.setComment("Use the customized coordinate format string");
-        coordinateFormatCustomized = prop.getBoolean();
+        builder.coordinateFormatCustomized = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "dateFormatReal", "yyyy-MM-dd HH:mm:ss");
         prop.setComment("The format string for real time, see the Java SimpleDateFormat class for the format patterns, if needed");
-        dateFormatReal = prop.getString();
+        String dateFormatReal = prop.getString();
 
         prop = conf.get(CATEGORY_GENERIC, "dateFormatMinecraft", "MC time: (day {DAY}) {HOUR}:{MIN}:xx");
         prop.setComment("The format string for the Minecraft time.\n" +
                         "The supported placeholders are: {DAY}, {HOUR}, {MIN}, {SEC}");
-        dateFormatMinecraft = prop.getString();
+        String dateFormatMinecraft = prop.getString();
 
         prop = conf.get(CATEGORY_GENERIC, "enableByDefault", true);
         prop.setComment("If true, the HUD will be enabled by default on game launch");
-        enableByDefault = prop.getBoolean();
+        builder.enableByDefault = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "fontColor", "0xE0E0E0");
         prop.setComment("Font color (RGB, default: 0xE0E0E0 = 14737632)");
-        fontColor = getColor(prop.getString(), 0xE0E0E0);
+        builder.fontColor = getColor(prop.getString(), 0xE0E0E0);
 
         prop = conf.get(CATEGORY_GENERIC, "fontScale", 1.0d);
         prop.setComment("Font scale factor. Valid range: 0.0 - 10.0. Default: 1.0\n" +
                         "Note that the 'useScaledFont' option will override this option (with 0.5) if it's enabled!");
-        fontScale = MathHelper.clamp(prop.getDouble(), 0d, 10d);
+        builder.fontScale = MathHelper.clamp(prop.getDouble(), 0d, 10d);
 
         prop = conf.get(CATEGORY_GENERIC, "hudAlignment", "top_left");
         prop.setComment("The alignment of the HUD. Valid values: top_left, rop_right, bottom_left, bottom_right, center.");
-        hudAlignment = HudAlignment.fromString(prop.getString());
+        builder.hudAlignment = HudAlignment.fromString(prop.getString());
+
+        prop = conf.get(CATEGORY_GENERIC, "infoUpdateBudgetNanos", 1000000);
+        prop.setComment("The maximum time (in nanoseconds) to spend on rebuilding the info lines per game tick.\n" +
+                        "When the budget runs out, the remaining lines are deferred to the next tick and keep their previous values.\n" +
+                        "The cheap lines get rebuilt first. 0 means no limit. Default: 1000000 (= 1 ms)");
+        builder.infoUpdateBudgetNanos = Math.max(prop.getInt(), 0);
 
         prop = conf.get(CATEGORY_GENERIC, "regionOverlayColor", "0xFFFF8019");
         prop.setComment("Color for the region file overlay rendering (RGB, default: 0xFFFF8019)");
-        regionOverlayColor = getColor(prop.getString(), 0xFFFF8019);
+        builder.regionOverlayColor = getColor(prop.getString(), 0xFFFF8019);
 
         prop = conf.get(CATEGORY_GENERIC, "requireSneak", false);
         prop.setComment("Require the player to be sneaking to render the HUD");
-        requireSneak = prop.getBoolean();
+        builder.requireSneak = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "requireHoldingKey", false);
         prop.setComment("Require holding a key to render the HUD. Valid keys are Alt, Ctrl and Shift.");
-        requireHoldingKey = prop.getBoolean();
+        builder.requireHoldingKey = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "requiredKey", "none");
         prop.setComment("The key required to render the HUD, if 'requireHoldingKey' is enabled. Valid values are 'alt', 'ctrl' and 'shift'.");
-        requiredKey = getKeyModifier(prop.getString());
+        builder.requiredKey = getKeyModifier(prop.getString());
 
         prop = conf.get(CATEGORY_GENERIC, "sortLinesByLength", false);
-        prop.setComment("Sort the lines by their text's length");
-        sortLinesByLength = prop.getBoolean();
+        prop.setComment("Sort the lines by their rendered width");
+        builder.sortLinesByLength = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "sortLinesReversed", false);
         prop.setComment("Reverse the line sorting order");
-        sortLinesReversed = prop.getBoolean();
+        builder.sortLinesReversed = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "textBackgroundColor", "0xA0505050");
         prop.setComment("Text background color (ARGB, default: 0xA0505050)");
-        textBackgroundColor = getColor(prop.getString(), 0xA0505050);
+        builder.textBackgroundColor = getColor(prop.getString(), 0xA0505050);
 
         prop = conf.get(CATEGORY_GENERIC, "textPosX", 4);
         prop.setComment("Text X position (default: 4)");
-        textPosX = prop.getInt();
+        builder.textPosX = prop.getInt();
 
         prop = conf.get(CATEGORY_GENERIC, "textPosY", 4);
         prop.setComment("Text Y position (default: 4)");
-        textPosY = prop.getInt();
+        builder.textPosY = prop.getInt();
 
         prop = conf.get(CATEGORY_GENERIC, "useFontShadow", false);
         prop.setComment("Use font shadow");
-        useFontShadow = prop.getBoolean();
+        builder.useFontShadow = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "useScaledFont", true);
         prop.setComment("Use 0.5x scale font size. Note that this overrides the 'fontScale' option!");
-        useScaledFont = prop.getBoolean();
+        builder.useScaledFont = prop.getBoolean();
 
         prop = conf.get(CATEGORY_GENERIC, "useTextBackground", true);
         prop.setComment("Use a solid background color behind the text");
-        useTextBackground = prop.getBoolean();
+        builder.useTextBackground = prop.getBoolean();
+
+        prop = conf.get(CATEGORY_GENERIC, "watchConfigFile", true);
+        prop.setComment("If true, then changes to this config file on disk are applied while the game is running.\n" +
+                        "Takes effect after a game restart.");
+        builder.watchConfigFile = prop.getBoolean();
 
 
         // Debug renderer related options
 
         prop = conf.get(CATEGORY_DEBUG_RENDERER, "debugRendererPathfindingEnablePointWidth", true);
         prop.setComment("If true, then the vanilla pathfinding debug renderer will render the max distance boxes.");
-        debugRendererPathfindingEnablePointWidth = prop.getBoolean();
+        builder.debugRendererPathfindingEnablePointWidth = prop.getBoolean();
 
 
         // Information types individual toggle
 
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoAllocRateClient", false);
+        prop.setComment("Show how fast the client thread allocates memory, in MB/s.\n" +
+                        "Needs a JVM with the per-thread allocation counters (HotSpot and OpenJ9 have them).");
+        setInfoType(builder, RenderEventHandler.MASK_ALLOC_RATE_CLIENT, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoAllocRateServer", false);
+        prop.setComment("Show how fast the integrated server thread allocates memory, in MB/s.\n" +
+                        "Only available in single player, and needs the per-thread allocation counters.");
+        setInfoType(builder, RenderEventHandler.MASK_ALLOC_RATE_SERVER, prop.getBoolean());
+
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoBiome", false);
         prop.setComment("Show the the name of the current biome");
-        setInfoType(RenderEventHandler.MASK_BIOME, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_BIOME, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoBiomeRegistryName", false);
         prop.setComment("Show the registry name of the current biome");
-        setInfoType(RenderEventHandler.MASK_BIOME_REGISTRY_NAME, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_BIOME_REGISTRY_NAME, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoBlockPosition", false);
         prop.setComment("Show the player's current block position");
-        setInfoType(RenderEventHandler.MASK_BLOCK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_BLOCK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoBlockProperties", false);
         prop.setComment("Show the BlockState properties and values of the looked-at block");
-        setInfoType(RenderEventHandler.MASK_BLOCK_PROPERTIES, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_BLOCK_PROPERTIES, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoBlockInChunk", false);
         prop.setComment("Show the player's current position within the chunk");
-        setInfoType(RenderEventHandler.MASK_BLOCK_IN_CHUNK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_BLOCK_IN_CHUNK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoChunkPosition", false);
         prop.setComment("Show the chunk position the player is currently in");
-        setInfoType(RenderEventHandler.MASK_CHUNK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_CHUNK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoChunkSections", false);
         prop.setComment("Show the currently rendered number of Chunk sections (the C value from F3)");
-        setInfoType(RenderEventHandler.MASK_CHUNK_SECTIONS, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_CHUNK_SECTIONS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoChunkSectionsLine", false);
         prop.setComment("Show the entire line of the C value from the F3 screen");
-        setInfoType(RenderEventHandler.MASK_CHUNK_SECTIONS_LINE, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_CHUNK_SECTIONS_LINE, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoChunkUpdates", false);
         prop.setComment("Show the current number of chunk updates per second");
-        setInfoType(RenderEventHandler.MASK_CHUNK_UPDATES, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_CHUNK_UPDATES, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoCoordinates", true);
         prop.setComment("Show the player's current coordinates");
-        setInfoType(RenderEventHandler.MASK_COORDINATES, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_COORDINATES, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoDifficulty", false);
         prop.setComment("Show the local difficulty");
-        setInfoType(RenderEventHandler.MASK_DIFFICULTY, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_DIFFICULTY, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoDimensionId", true);
         prop.setComment("Show the current dimension ID (might not be accurate in every case, depending on the server!)");
-        setInfoType(RenderEventHandler.MASK_DIMENSION, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_DIMENSION, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoEntities", false);
         prop.setComment("Show the visible/loaded entity count");
-        setInfoType(RenderEventHandler.MASK_ENTITIES, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_ENTITIES, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoEntityRegistryName", false);
         prop.setComment("Show the registry name of the entity the player is currently looking at");
-        setInfoType(RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFacing", true);
         prop.setComment("Show the player's current facing");
-        setInfoType(RenderEventHandler.MASK_FACING, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_FACING, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFPS", false);
-        prop.setComment("Show the current FPS");
-        setInfoType(RenderEventHandler.MASK_FPS, prop.getBoolean());
+        prop.setComment("Show the current FPS, ie. the average over the frames of the last second");
+        setInfoType(builder, RenderEventHandler.MASK_FPS, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFPSLow1", false);
+        prop.setComment("Show the 1% low FPS, ie. the FPS matching the 99th percentile frame time,\n" +
+                        "over the last " + FrameTimes.WINDOW_SIZE + " frames");
+        setInfoType(builder, RenderEventHandler.MASK_FPS_LOW_1, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFPSLow01", false);
+        prop.setComment("Show the 0.1% low FPS, ie. the FPS matching the 99.9th percentile frame time,\n" +
+                        "over the last " + FrameTimes.WINDOW_SIZE + " frames");
+        setInfoType(builder, RenderEventHandler.MASK_FPS_LOW_01, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFramePhases", false);
+        prop.setComment("Show how long the client ticks, the world rendering and the HUD/GUI rendering take\n" +
+                        "(average and max over the recent ticks/frames), to see where the time goes on slow frames");
+        setInfoType(builder, RenderEventHandler.MASK_FRAME_PHASES, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoFrameTimeMax", false);
+        prop.setComment("Show the longest frame time of the last " + FrameTimes.WINDOW_SIZE + " frames");
+        setInfoType(builder, RenderEventHandler.MASK_FRAME_TIME_MAX, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoGCOldCount", false);
+        prop.setComment("Show how many old generation (or full) garbage collections there have been since the game started");
+        setInfoType(builder, RenderEventHandler.MASK_GC_OLD_COUNT, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoGCTime", false);
+        prop.setComment("Show the total garbage collection time over the last " + (JvmSampler.GC_WINDOW_MILLIS / 1000L) + " seconds");
+        setInfoType(builder, RenderEventHandler.MASK_GC_TIME, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoGCYoungCount", false);
+        prop.setComment("Show how many young generation garbage collections there have been since the game started");
+        setInfoType(builder, RenderEventHandler.MASK_GC_YOUNG_COUNT, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoHeapCommitted", false);
+        prop.setComment("Show how much heap memory the JVM has currently reserved from the OS");
+        setInfoType(builder, RenderEventHandler.MASK_HEAP_COMMITTED, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoHeapMax", false);
+        prop.setComment("Show the maximum heap size (-Xmx)");
+        setInfoType(builder, RenderEventHandler.MASK_HEAP_MAX, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoHeapUsed", false);
+        prop.setComment("Show how much of the heap memory is currently in use");
+        setInfoType(builder, RenderEventHandler.MASK_HEAP_USED, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoHudDrawBatches", false);
+        prop.setComment("Show how many draw calls and quads were used for drawing the HUD text and backgrounds on the last frame");
+        setInfoType(builder, RenderEventHandler.MASK_HUD_DRAW_BATCHES, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoInitTimings", false);
+        prop.setComment("Show how long the mod initialization and the reflection lookups took (the details are in the log)");
+        setInfoType(builder, RenderEventHandler.MASK_INIT_TIMINGS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoLightLevel", false);
         prop.setComment("Show the current light level");
-        setInfoType(RenderEventHandler.MASK_LIGHT, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_LIGHT, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoLineRebuilds", false);
+        prop.setComment("Show how many of the info lines were actually rebuilt during the last second,\n" +
+                        "out of all the displayed lines (the rest were re-used because their inputs didn't change)");
+        setInfoType(builder, RenderEventHandler.MASK_LINE_REBUILDS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoLookingAtBlock", false);
         prop.setComment("Show which block the player is currently looking at");
-        setInfoType(RenderEventHandler.MASK_LOOKING_AT_BLOCK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_LOOKING_AT_BLOCK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoLookingAtBlockInChunk", false);
         prop.setComment("Show which block within its containing chunk the player is currently looking at");
-        setInfoType(RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoLookingAtEntity", false);
         prop.setComment("Show the entity name and health when looked at");
-        setInfoType(RenderEventHandler.MASK_LOOKING_AT_ENTITY, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_LOOKING_AT_ENTITY, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoMetrics", false);
+        prop.setComment("Show all the internal MiniHud metrics (counters, gauges and timing histograms), one per line");
+        setInfoType(builder, RenderEventHandler.MASK_METRICS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoParticleCount", false);
         prop.setComment("Show the currently renderer particle count (P from F3)");
-        setInfoType(RenderEventHandler.MASK_PARTICLE_COUNT, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_PARTICLE_COUNT, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoRealTime", true);
         prop.setComment("Show the current real time formatted according to dateFormatReal");
-        setInfoType(RenderEventHandler.MASK_TIME_REAL, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_TIME_REAL, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoProfiler", false);
+        prop.setComment("Show how much time MiniHud itself spends on updating the lines, drawing the text and overlays,\n" +
+                        "and sending the pathfinding debug data (average and 99th percentile of the recent calls).\n" +
+                        "The full per-info-type breakdown can be dumped to the log with the 'Dump profiler to log' key binding.");
+        setInfoType(builder, RenderEventHandler.MASK_PROFILER, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoRegionFile", false);
         prop.setComment("Show the region file the player is currently in");
-        setInfoType(RenderEventHandler.MASK_REGION_FILE, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_REGION_FILE, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoRotationPitch", false);
         prop.setComment("Show the player's current pitch rotation");
-        setInfoType(RenderEventHandler.MASK_PITCH, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_PITCH, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoRotationYaw", false);
         prop.setComment("Show the player's current yaw rotation");
-        setInfoType(RenderEventHandler.MASK_YAW, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_YAW, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoServerDimensionTPS", false);
+        prop.setComment("Show the integrated server's mean/max tick time and the effective TPS of each dimension.\n" +
+                        "Only available in single player (and when hosting a LAN game).");
+        setInfoType(builder, RenderEventHandler.MASK_SERVER_DIMENSION_TPS, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoServerMSPT", false);
+        prop.setComment("Show the integrated server's mean and max tick time (milliseconds per tick) over the last 100 ticks.\n" +
+                        "Only available in single player (and when hosting a LAN game).");
+        setInfoType(builder, RenderEventHandler.MASK_SERVER_MSPT, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoServerTPS", false);
+        prop.setComment("Show the integrated server's effective TPS over the last 100 ticks.\n" +
+                        "Only available in single player (and when hosting a LAN game).");
+        setInfoType(builder, RenderEventHandler.MASK_SERVER_TPS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoSlimeChunk", false);
         prop.setComment("Show whether the player is currently in a slime chunk.\n" +
                         "NOTE: This only works in single player without any user intervention!\n" +
                         "On a server the player needs to be admin/OP and\n" +
                         "run the /seed command manually EVERY TIME they join or change dimensions!");
-        setInfoType(RenderEventHandler.MASK_SLIME_CHUNK, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_SLIME_CHUNK, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoSpeed", false);
         prop.setComment("Show the player's current moving speed");
-        setInfoType(RenderEventHandler.MASK_SPEED, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_SPEED, prop.getBoolean());
+
+        prop = conf.get(CATEGORY_INFO_TOGGLE, "infoThreadCPU", false);
+        prop.setComment("Show the CPU usage of the client thread, the integrated server thread, the chunk builder threads\n" +
+                        "and the MiniHud worker threads over the last " + (ThreadCpuSampler.WINDOW_MILLIS / 1000L) + " seconds,\n" +
+                        "as a percentage of one core. The values are also included in the metrics dump.");
+        setInfoType(builder, RenderEventHandler.MASK_THREAD_CPU, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoWorldTime", false);
         prop.setComment("Show the current world time in ticks");
-        setInfoType(RenderEventHandler.MASK_TIME_TICKS, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_TIME_TICKS, prop.getBoolean());
 
         prop = conf.get(CATEGORY_INFO_TOGGLE, "infoWorldTimeFormatted", false);
         prop.setComment("Show the current world time formatted to days, hours, minutes");
-        setInfoType(RenderEventHandler.MASK_TIME_MC, prop.getBoolean());
+        setInfoType(builder, RenderEventHandler.MASK_TIME_MC, prop.getBoolean());
 
         // Info hotkey assignments
         ConfigCategory cat = conf.getCategory(CATEGORY_INFO_HOTKEYS);
@@ -310,39 +429,58 @@ public class Configs
                         "To toggle the info type while in-game, press and hold the Toggle key and then " +
                         "press the keys set here to toggle the info types on/off.");
 
-        HOTKEY_INFO_MAP.clear();
-
-        assignInfoHotkey(conf, "infoFPS",                   RenderEventHandler.MASK_FPS                         , "");
-        assignInfoHotkey(conf, "infoRealTime",              RenderEventHandler.MASK_TIME_REAL                   , "t");
-        assignInfoHotkey(conf, "infoWorldTime",             RenderEventHandler.MASK_TIME_TICKS                  , "");
-        assignInfoHotkey(conf, "infoWorldTimeFormatted",    RenderEventHandler.MASK_TIME_MC                     , "");
-        assignInfoHotkey(conf, "infoCoordinates",           RenderEventHandler.MASK_COORDINATES                 , "n");
-        assignInfoHotkey(conf, "infoDimensionId",           RenderEventHandler.MASK_DIMENSION                   , "d");
-        assignInfoHotkey(conf, "infoBlockPosition",         RenderEventHandler.MASK_BLOCK                       , "o");
-        assignInfoHotkey(conf, "infoBlockInChunk",          RenderEventHandler.MASK_BLOCK_IN_CHUNK              , "");
-        assignInfoHotkey(conf, "infoFacing",                RenderEventHandler.MASK_FACING                      , "f");
-        assignInfoHotkey(conf, "infoLightLevel",            RenderEventHandler.MASK_LIGHT                       , "l");
-        assignInfoHotkey(conf, "infoRotationYaw",           RenderEventHandler.MASK_YAW                         , "r");
-        assignInfoHotkey(conf, "infoRotationPitch",         RenderEventHandler.MASK_PITCH                       , "r");
-        assignInfoHotkey(conf, "infoSpeed",                 RenderEventHandler.MASK_SPEED                       , "s");
-        assignInfoHotkey(conf, "infoChunkSections",         RenderEventHandler.MASK_CHUNK_SECTIONS              , "");
-        assignInfoHotkey(conf, "infoChunkSectionsLine",     RenderEventHandler.MASK_CHUNK_SECTIONS_LINE         , "");
-        assignInfoHotkey(conf, "infoChunkUpdates",          RenderEventHandler.MASK_CHUNK_UPDATES               , "");
-        assignInfoHotkey(conf, "infoParticleCount",         RenderEventHandler.MASK_PARTICLE_COUNT              , "");
-        assignInfoHotkey(conf, "infoDifficulty",            RenderEventHandler.MASK_DIFFICULTY                  , "");
-        assignInfoHotkey(conf, "infoBiome",                 RenderEventHandler.MASK_BIOME                       , "b");
-        assignInfoHotkey(conf, "infoBiomeRegistryName",     RenderEventHandler.MASK_BIOME_REGISTRY_NAME         , "b");
-        assignInfoHotkey(conf, "infoEntities",              RenderEventHandler.MASK_ENTITIES                    , "");
-        assignInfoHotkey(conf, "infoSlimeChunk",            RenderEventHandler.MASK_SLIME_CHUNK                 , "i");
-        assignInfoHotkey(conf, "infoLookingAtEntity",       RenderEventHandler.MASK_LOOKING_AT_ENTITY           , "l");
-        assignInfoHotkey(conf, "infoEntityRegistryName",    RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME   , "l");
-        assignInfoHotkey(conf, "infoLookingAtBlock",        RenderEventHandler.MASK_LOOKING_AT_BLOCK            , "l");
-        assignInfoHotkey(conf, "infoLookingAtBlockInChunk", RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK      , "");
-        assignInfoHotkey(conf, "infoBlockProperties",       RenderEventHandler.MASK_BLOCK_PROPERTIES            , "p");
-        assignInfoHotkey(conf, "infoChunkPosition",         RenderEventHandler.MASK_CHUNK                       , "c");
-        assignInfoHotkey(conf, "infoRegionFile",            RenderEventHandler.MASK_REGION_FILE                 , "g");
-
-        assignHotkey(HOTKEY_INFO_MAP, conf, CATEGORY_RENDERER_HOTKEYS, "renderRegionOverlay", "j", RenderEventHandler.MASK_REGION_OVERLAY);
+        assignInfoHotkey(builder, conf, "infoFPS",                   RenderEventHandler.MASK_FPS                         , "");
+        assignInfoHotkey(builder, conf, "infoRealTime",              RenderEventHandler.MASK_TIME_REAL                   , "t");
+        assignInfoHotkey(builder, conf, "infoWorldTime",             RenderEventHandler.MASK_TIME_TICKS                  , "");
+        assignInfoHotkey(builder, conf, "infoWorldTimeFormatted",    RenderEventHandler.MASK_TIME_MC                     , "");
+        assignInfoHotkey(builder, conf, "infoCoordinates",           RenderEventHandler.MASK_COORDINATES                 , "n");
+        assignInfoHotkey(builder, conf, "infoDimensionId",           RenderEventHandler.MASK_DIMENSION                   , "d");
+        assignInfoHotkey(builder, conf, "infoBlockPosition",         RenderEventHandler.MASK_BLOCK                       , "o");
+        assignInfoHotkey(builder, conf, "infoBlockInChunk",          RenderEventHandler.MASK_BLOCK_IN_CHUNK              , "");
+        assignInfoHotkey(builder, conf, "infoFacing",                RenderEventHandler.MASK_FACING                      , "f");
+        assignInfoHotkey(builder, conf, "infoLightLevel",            RenderEventHandler.MASK_LIGHT                       , "l");
+        assignInfoHotkey(builder, conf, "infoRotationYaw",           RenderEventHandler.MASK_YAW                         , "r");
+        assignInfoHotkey(builder, conf, "infoRotationPitch",         RenderEventHandler.MASK_PITCH                       , "r");
+        assignInfoHotkey(builder, conf, "infoSpeed",                 RenderEventHandler.MASK_SPEED                       , "s");
+        assignInfoHotkey(builder, conf, "infoChunkSections",         RenderEventHandler.MASK_CHUNK_SECTIONS              , "");
+        assignInfoHotkey(builder, conf, "infoChunkSectionsLine",     RenderEventHandler.MASK_CHUNK_SECTIONS_LINE         , "");
+        assignInfoHotkey(builder, conf, "infoChunkUpdates",          RenderEventHandler.MASK_CHUNK_UPDATES               , "");
+        assignInfoHotkey(builder, conf, "infoParticleCount",         RenderEventHandler.MASK_PARTICLE_COUNT              , "");
+        assignInfoHotkey(builder, conf, "infoDifficulty",            RenderEventHandler.MASK_DIFFICULTY                  , "");
+        assignInfoHotkey(builder, conf, "infoBiome",                 RenderEventHandler.MASK_BIOME                       , "b");
+        assignInfoHotkey(builder, conf, "infoBiomeRegistryName",     RenderEventHandler.MASK_BIOME_REGISTRY_NAME         , "b");
+        assignInfoHotkey(builder, conf, "infoEntities",              RenderEventHandler.MASK_ENTITIES                    , "");
+        assignInfoHotkey(builder, conf, "infoSlimeChunk",            RenderEventHandler.MASK_SLIME_CHUNK                 , "i");
+        assignInfoHotkey(builder, conf, "infoLookingAtEntity",       RenderEventHandler.MASK_LOOKING_AT_ENTITY           , "l");
+        assignInfoHotkey(builder, conf, "infoEntityRegistryName",    RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME   , "l");
+        assignInfoHotkey(builder, conf, "infoLookingAtBlock",        RenderEventHandler.MASK_LOOKING_AT_BLOCK            , "l");
+        assignInfoHotkey(builder, conf, "infoLookingAtBlockInChunk", RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK      , "");
+        assignInfoHotkey(builder, conf, "infoBlockProperties",       RenderEventHandler.MASK_BLOCK_PROPERTIES            , "p");
+        assignInfoHotkey(builder, conf, "infoChunkPosition",         RenderEventHandler.MASK_CHUNK                       , "c");
+        assignInfoHotkey(builder, conf, "infoRegionFile",            RenderEventHandler.MASK_REGION_FILE                 , "g");
+        assignInfoHotkey(builder, conf, "infoLineRebuilds",          RenderEventHandler.MASK_LINE_REBUILDS               , "");
+        assignInfoHotkey(builder, conf, "infoHudDrawBatches",        RenderEventHandler.MASK_HUD_DRAW_BATCHES            , "");
+        assignInfoHotkey(builder, conf, "infoInitTimings",           RenderEventHandler.MASK_INIT_TIMINGS                , "");
+        assignInfoHotkey(builder, conf, "infoMetrics",               RenderEventHandler.MASK_METRICS                     , "");
+        assignInfoHotkey(builder, conf, "infoProfiler",              RenderEventHandler.MASK_PROFILER                    , "");
+        assignInfoHotkey(builder, conf, "infoFPSLow1",               RenderEventHandler.MASK_FPS_LOW_1                   , "");
+        assignInfoHotkey(builder, conf, "infoFPSLow01",              RenderEventHandler.MASK_FPS_LOW_01                  , "");
+        assignInfoHotkey(builder, conf, "infoFrameTimeMax",          RenderEventHandler.MASK_FRAME_TIME_MAX              , "");
+        assignInfoHotkey(builder, conf, "infoFramePhases",           RenderEventHandler.MASK_FRAME_PHASES                , "");
+        assignInfoHotkey(builder, conf, "infoServerMSPT",            RenderEventHandler.MASK_SERVER_MSPT                 , "");
+        assignInfoHotkey(builder, conf, "infoServerTPS",             RenderEventHandler.MASK_SERVER_TPS                  , "");
+        assignInfoHotkey(builder, conf, "infoServerDimensionTPS",    RenderEventHandler.MASK_SERVER_DIMENSION_TPS        , "");
+        assignInfoHotkey(builder, conf, "infoHeapUsed",              RenderEventHandler.MASK_HEAP_USED                   , "");
+        assignInfoHotkey(builder, conf, "infoHeapCommitted",         RenderEventHandler.MASK_HEAP_COMMITTED              , "");
+        assignInfoHotkey(builder, conf, "infoHeapMax",               RenderEventHandler.MASK_HEAP_MAX                    , "");
+        assignInfoHotkey(builder, conf, "infoGCYoungCount",          RenderEventHandler.MASK_GC_YOUNG_COUNT              , "");
+        assignInfoHotkey(builder, conf, "infoGCOldCount",            RenderEventHandler.MASK_GC_OLD_COUNT                , "");
+        assignInfoHotkey(builder, conf, "infoGCTime",                RenderEventHandler.MASK_GC_TIME                     , "");
+        assignInfoHotkey(builder, conf, "infoAllocRateClient",       RenderEventHandler.MASK_ALLOC_RATE_CLIENT           , "");
+        assignInfoHotkey(builder, conf, "infoAllocRateServer",       RenderEventHandler.MASK_ALLOC_RATE_SERVER           , "");
+        assignInfoHotkey(builder, conf, "infoThreadCPU",             RenderEventHandler.MASK_THREAD_CPU                  , "");
+
+        assignHotkey(builder, true, conf, CATEGORY_RENDERER_HOTKEYS, "renderRegionOverlay", "j", RenderEventHandler.MASK_REGION_OVERLAY);
 
 
         cat = conf.getCategory(CATEGORY_DEBUG_HOTKEYS);
@@ -350,14 +488,12 @@ public class Configs
                        "To use these, first press down F3 and then press the\n" +
                        "keys defined here to toggle the feature ON/OFF.");
 
-        HOTKEY_DEBUG_MAP.clear();
-
-        assignDebugRendererHotkey(conf, "debugCollisionBoxEnabled",     InputEventHandler.MASK_DEBUG_COLLISION_BOXES,   "1");
-        assignDebugRendererHotkey(conf, "debugHeightMapEnabled",        InputEventHandler.MASK_DEBUG_HEIGHT_MAP,        "2");
-        assignDebugRendererHotkey(conf, "debugNeighborsUpdateEnabled",  InputEventHandler.MASK_DEBUG_NEIGHBOR_UPDATE,   "3");
-        assignDebugRendererHotkey(conf, "debugPathfindingEnabled",      InputEventHandler.MASK_DEBUG_PATHFINDING,       "4");
-        assignDebugRendererHotkey(conf, "debugSolidFaceEnabled",        InputEventHandler.MASK_DEBUG_SOLID_FACES,       "5");
-        assignDebugRendererHotkey(conf, "debugWaterEnabled",            InputEventHandler.MASK_DEBUG_WATER,             "6");
+        assignDebugRendererHotkey(builder, conf, "debugCollisionBoxEnabled",     InputEventHandler.MASK_DEBUG_COLLISION_BOXES,   "1");
+        assignDebugRendererHotkey(builder, conf, "debugHeightMapEnabled",        InputEventHandler.MASK_DEBUG_HEIGHT_MAP,        "2");
+        assignDebugRendererHotkey(builder, conf, "debugNeighborsUpdateEnabled",  InputEventHandler.MASK_DEBUG_NEIGHBOR_UPDATE,   "3");
+        assignDebugRendererHotkey(builder, conf, "debugPathfindingEnabled",      InputEventHandler.MASK_DEBUG_PATHFINDING,       "4");
+        assignDebugRendererHotkey(builder, conf, "debugSolidFaceEnabled",        InputEventHandler.MASK_DEBUG_SOLID_FACES,       "5");
+        assignDebugRendererHotkey(builder, conf, "debugWaterEnabled",            InputEventHandler.MASK_DEBUG_WATER,             "6");
 
 
         cat = conf.getCategory(CATEGORY_INFO_LINE_ORDER);
@@ -367,64 +503,184 @@ public class Configs
                        "If multiple types have the same index, then the last one that\n" +
                        "is actually added internally, will bump previous entries downwards.");
 
-        LINE_ORDER_MAP.clear();
-
-        setLinePosition(conf, "infoFPS",                    RenderEventHandler.MASK_FPS);
-        setLinePosition(conf, "infoRealTime",               RenderEventHandler.MASK_TIME_REAL);
-        setLinePosition(conf, "infoWorldTime",              RenderEventHandler.MASK_TIME_TICKS);
-        setLinePosition(conf, "infoWorldTimeFormatted",     RenderEventHandler.MASK_TIME_MC);
-        setLinePosition(conf, "infoCoordinates",            RenderEventHandler.MASK_COORDINATES);
-        setLinePosition(conf, "infoDimensionId",            RenderEventHandler.MASK_DIMENSION);
-        setLinePosition(conf, "infoBlockPosition",          RenderEventHandler.MASK_BLOCK);
-        setLinePosition(conf, "infoBlockInChunk",           RenderEventHandler.MASK_BLOCK_IN_CHUNK);
-        setLinePosition(conf, "infoChunkPosition",          RenderEventHandler.MASK_CHUNK);
-        setLinePosition(conf, "infoRegionFile",             RenderEventHandler.MASK_REGION_FILE);
-        setLinePosition(conf, "infoFacing",                 RenderEventHandler.MASK_FACING);
-        setLinePosition(conf, "infoLightLevel",             RenderEventHandler.MASK_LIGHT);
-        setLinePosition(conf, "infoRotationYaw",            RenderEventHandler.MASK_YAW);
-        setLinePosition(conf, "infoRotationPitch",          RenderEventHandler.MASK_PITCH);
-        setLinePosition(conf, "infoSpeed",                  RenderEventHandler.MASK_SPEED);
-        setLinePosition(conf, "infoChunkSections",          RenderEventHandler.MASK_CHUNK_SECTIONS);
-        setLinePosition(conf, "infoChunkSectionsLine",      RenderEventHandler.MASK_CHUNK_SECTIONS_LINE);
-        setLinePosition(conf, "infoChunkUpdates",           RenderEventHandler.MASK_CHUNK_UPDATES);
-        setLinePosition(conf, "infoParticleCount",          RenderEventHandler.MASK_PARTICLE_COUNT);
-        setLinePosition(conf, "infoDifficulty",             RenderEventHandler.MASK_DIFFICULTY);
-        setLinePosition(conf, "infoBiome",                  RenderEventHandler.MASK_BIOME);
-        setLinePosition(conf, "infoBiomeRegistryName",      RenderEventHandler.MASK_BIOME_REGISTRY_NAME);
-        setLinePosition(conf, "infoEntities",               RenderEventHandler.MASK_ENTITIES);
-        setLinePosition(conf, "infoSlimeChunk",             RenderEventHandler.MASK_SLIME_CHUNK);
-        setLinePosition(conf, "infoLookingAtEntity",        RenderEventHandler.MASK_LOOKING_AT_ENTITY);
-        setLinePosition(conf, "infoEntityRegistryName",     RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME);
-        setLinePosition(conf, "infoLookingAtBlock",         RenderEventHandler.MASK_LOOKING_AT_BLOCK);
-        setLinePosition(conf, "infoLookingAtBlockInChunk",  RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK);
-        setLinePosition(conf, "infoBlockProperties",        RenderEventHandler.MASK_BLOCK_PROPERTIES);
-
-        RenderEventHandler.getInstance().setEnabledMask(enabledInfoTypes);
-
-        activeFontScale = useScaledFont ? 0.5d : fontScale;
+        setLinePosition(builder, conf, "infoFPS",                    RenderEventHandler.MASK_FPS);
+        setLinePosition(builder, conf, "infoRealTime",               RenderEventHandler.MASK_TIME_REAL);
+        setLinePosition(builder, conf, "infoWorldTime",              RenderEventHandler.MASK_TIME_TICKS);
+        setLinePosition(builder, conf, "infoWorldTimeFormatted",     RenderEventHandler.MASK_TIME_MC);
+        setLinePosition(builder, conf, "infoCoordinates",            RenderEventHandler.MASK_COORDINATES);
+        setLinePosition(builder, conf, "infoDimensionId",            RenderEventHandler.MASK_DIMENSION);
+        setLinePosition(builder, conf, "infoBlockPosition",          RenderEventHandler.MASK_BLOCK);
+        setLinePosition(builder, conf, "infoBlockInChunk",           RenderEventHandler.MASK_BLOCK_IN_CHUNK);
+        setLinePosition(builder, conf, "infoChunkPosition",          RenderEventHandler.MASK_CHUNK);
+        setLinePosition(builder, conf, "infoRegionFile",             RenderEventHandler.MASK_REGION_FILE);
+        setLinePosition(builder, conf, "infoFacing",                 RenderEventHandler.MASK_FACING);
+        setLinePosition(builder, conf, "infoLightLevel",             RenderEventHandler.MASK_LIGHT);
+        setLinePosition(builder, conf, "infoRotationYaw",            RenderEventHandler.MASK_YAW);
+        setLinePosition(builder, conf, "infoRotationPitch",          RenderEventHandler.MASK_PITCH);
+        setLinePosition(builder, conf, "infoSpeed",                  RenderEventHandler.MASK_SPEED);
+        setLinePosition(builder, conf, "infoChunkSections",          RenderEventHandler.MASK_CHUNK_SECTIONS);
+        setLinePosition(builder, conf, "infoChunkSectionsLine",      RenderEventHandler.MASK_CHUNK_SECTIONS_LINE);
+        setLinePosition(builder, conf, "infoChunkUpdates",           RenderEventHandler.MASK_CHUNK_UPDATES);
+        setLinePosition(builder, conf, "infoParticleCount",          RenderEventHandler.MASK_PARTICLE_COUNT);
+        setLinePosition(builder, conf, "infoDifficulty",             RenderEventHandler.MASK_DIFFICULTY);
+        setLinePosition(builder, conf, "infoBiome",                  RenderEventHandler.MASK_BIOME);
+        setLinePosition(builder, conf, "infoBiomeRegistryName",      RenderEventHandler.MASK_BIOME_REGISTRY_NAME);
+        setLinePosition(builder, conf, "infoEntities",               RenderEventHandler.MASK_ENTITIES);
+        setLinePosition(builder, conf, "infoSlimeChunk",             RenderEventHandler.MASK_SLIME_CHUNK);
+        setLinePosition(builder, conf, "infoLookingAtEntity",        RenderEventHandler.MASK_LOOKING_AT_ENTITY);
+        setLinePosition(builder, conf, "infoEntityRegistryName",     RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME);
+        setLinePosition(builder, conf, "infoLookingAtBlock",         RenderEventHandler.MASK_LOOKING_AT_BLOCK);
+        setLinePosition(builder, conf, "infoLookingAtBlockInChunk",  RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK);
+        setLinePosition(builder, conf, "infoBlockProperties",        RenderEventHandler.MASK_BLOCK_PROPERTIES);
+        setLinePosition(builder, conf, "infoLineRebuilds",           RenderEventHandler.MASK_LINE_REBUILDS);
+        setLinePosition(builder, conf, "infoHudDrawBatches",         RenderEventHandler.MASK_HUD_DRAW_BATCHES);
+        setLinePosition(builder, conf, "infoInitTimings",            RenderEventHandler.MASK_INIT_TIMINGS);
+        setLinePosition(builder, conf, "infoMetrics",                RenderEventHandler.MASK_METRICS);
+        setLinePosition(builder, conf, "infoProfiler",               RenderEventHandler.MASK_PROFILER);
+        setLinePosition(builder, conf, "infoFPSLow1",                RenderEventHandler.MASK_FPS_LOW_1);
+        setLinePosition(builder, conf, "infoFPSLow01",               RenderEventHandler.MASK_FPS_LOW_01);
+        setLinePosition(builder, conf, "infoFrameTimeMax",           RenderEventHandler.MASK_FRAME_TIME_MAX);
+        setLinePosition(builder, conf, "infoFramePhases",            RenderEventHandler.MASK_FRAME_PHASES);
+        setLinePosition(builder, conf, "infoServerMSPT",             RenderEventHandler.MASK_SERVER_MSPT);
+        setLinePosition(builder, conf, "infoServerTPS",              RenderEventHandler.MASK_SERVER_TPS);
+        setLinePosition(builder, conf, "infoServerDimensionTPS",     RenderEventHandler.MASK_SERVER_DIMENSION_TPS);
+        setLinePosition(builder, conf, "infoHeapUsed",               RenderEventHandler.MASK_HEAP_USED);
+        setLinePosition(builder, conf, "infoHeapCommitted",          RenderEventHandler.MASK_HEAP_COMMITTED);
+        setLinePosition(builder, conf, "infoHeapMax",                RenderEventHandler.MASK_HEAP_MAX);
+        setLinePosition(builder, conf, "infoGCYoungCount",           RenderEventHandler.MASK_GC_YOUNG_COUNT);
+        setLinePosition(builder, conf, "infoGCOldCount",             RenderEventHandler.MASK_GC_OLD_COUNT);
+        setLinePosition(builder, conf, "infoGCTime",                 RenderEventHandler.MASK_GC_TIME);
+        setLinePosition(builder, conf, "infoAllocRateClient",        RenderEventHandler.MASK_ALLOC_RATE_CLIENT);
+        setLinePosition(builder, conf, "infoAllocRateServer",        RenderEventHandler.MASK_ALLOC_RATE_SERVER);
+        setLinePosition(builder, conf, "infoThreadCPU",              RenderEventHandler.MASK_THREAD_CPU);
+
+        cat = conf.getCategory(CATEGORY_INFO_REFRESH_INTERVALS);
+        cat.setComment("Here you can set how often each info line gets refreshed, in milliseconds.\n" +
+                       "The lines are gathered once per game tick, so 0 means every tick.\n" +
+                       "The info types that share a line use the shortest interval of the enabled types.");
+
+        setRefreshInterval(builder, conf, "infoFPS",                    RenderEventHandler.MASK_FPS,                         50);
+        setRefreshInterval(builder, conf, "infoRealTime",               RenderEventHandler.MASK_TIME_REAL,                   50);
+        setRefreshInterval(builder, conf, "infoWorldTime",              RenderEventHandler.MASK_TIME_TICKS,                  50);
+        setRefreshInterval(builder, conf, "infoWorldTimeFormatted",     RenderEventHandler.MASK_TIME_MC,                     50);
+        setRefreshInterval(builder, conf, "infoCoordinates",            RenderEventHandler.MASK_COORDINATES,                 0);
+        setRefreshInterval(builder, conf, "infoDimensionId",            RenderEventHandler.MASK_DIMENSION,                   0);
+        setRefreshInterval(builder, conf, "infoBlockPosition",          RenderEventHandler.MASK_BLOCK,                       50);
+        setRefreshInterval(builder, conf, "infoBlockInChunk",           RenderEventHandler.MASK_BLOCK_IN_CHUNK,              50);
+        setRefreshInterval(builder, conf, "infoChunkPosition",          RenderEventHandler.MASK_CHUNK,                       50);
+        setRefreshInterval(builder, conf, "infoRegionFile",             RenderEventHandler.MASK_REGION_FILE,                 50);
+        setRefreshInterval(builder, conf, "infoFacing",                 RenderEventHandler.MASK_FACING,                      0);
+        setRefreshInterval(builder, conf, "infoLightLevel",             RenderEventHandler.MASK_LIGHT,                       50);
+        setRefreshInterval(builder, conf, "infoRotationYaw",            RenderEventHandler.MASK_YAW,                         0);
+        setRefreshInterval(builder, conf, "infoRotationPitch",          RenderEventHandler.MASK_PITCH,                       0);
+        setRefreshInterval(builder, conf, "infoSpeed",                  RenderEventHandler.MASK_SPEED,                       0);
+        setRefreshInterval(builder, conf, "infoChunkSections",          RenderEventHandler.MASK_CHUNK_SECTIONS,              500);
+        setRefreshInterval(builder, conf, "infoChunkSectionsLine",      RenderEventHandler.MASK_CHUNK_SECTIONS_LINE,         500);
+        setRefreshInterval(builder, conf, "infoChunkUpdates",           RenderEventHandler.MASK_CHUNK_UPDATES,               500);
+        setRefreshInterval(builder, conf, "infoParticleCount",          RenderEventHandler.MASK_PARTICLE_COUNT,              500);
+        setRefreshInterval(builder, conf, "infoDifficulty",             RenderEventHandler.MASK_DIFFICULTY,                  1000);
+        setRefreshInterval(builder, conf, "infoBiome",                  RenderEventHandler.MASK_BIOME,                       50);
+        setRefreshInterval(builder, conf, "infoBiomeRegistryName",      RenderEventHandler.MASK_BIOME_REGISTRY_NAME,         50);
+        setRefreshInterval(builder, conf, "infoEntities",               RenderEventHandler.MASK_ENTITIES,                    500);
+        setRefreshInterval(builder, conf, "infoSlimeChunk",             RenderEventHandler.MASK_SLIME_CHUNK,                 1000);
+        setRefreshInterval(builder, conf, "infoLookingAtEntity",        RenderEventHandler.MASK_LOOKING_AT_ENTITY,           50);
+        setRefreshInterval(builder, conf, "infoEntityRegistryName",     RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME,   50);
+        setRefreshInterval(builder, conf, "infoLookingAtBlock",         RenderEventHandler.MASK_LOOKING_AT_BLOCK,            50);
+        setRefreshInterval(builder, conf, "infoLookingAtBlockInChunk",  RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK,      50);
+        setRefreshInterval(builder, conf, "infoBlockProperties",        RenderEventHandler.MASK_BLOCK_PROPERTIES,            50);
+        setRefreshInterval(builder, conf, "infoLineRebuilds",           RenderEventHandler.MASK_LINE_REBUILDS,               250);
+        setRefreshInterval(builder, conf, "infoHudDrawBatches",         RenderEventHandler.MASK_HUD_DRAW_BATCHES,            250);
+        setRefreshInterval(builder, conf, "infoInitTimings",            RenderEventHandler.MASK_INIT_TIMINGS,                1000);
+        setRefreshInterval(builder, conf, "infoMetrics",                RenderEventHandler.MASK_METRICS,                     1000);
+        setRefreshInterval(builder, conf, "infoProfiler",               RenderEventHandler.MASK_PROFILER,                    500);
+        setRefreshInterval(builder, conf, "infoFPSLow1",                RenderEventHandler.MASK_FPS_LOW_1,                   250);
+        setRefreshInterval(builder, conf, "infoFPSLow01",               RenderEventHandler.MASK_FPS_LOW_01,                  250);
+        setRefreshInterval(builder, conf, "infoFrameTimeMax",           RenderEventHandler.MASK_FRAME_TIME_MAX,              250);
+        setRefreshInterval(builder, conf, "infoFramePhases",            RenderEventHandler.MASK_FRAME_PHASES,                250);
+        setRefreshInterval(builder, conf, "infoServerMSPT",             RenderEventHandler.MASK_SERVER_MSPT,                 500);
+        setRefreshInterval(builder, conf, "infoServerTPS",              RenderEventHandler.MASK_SERVER_TPS,                  500);
+        setRefreshInterval(builder, conf, "infoServerDimensionTPS",     RenderEventHandler.MASK_SERVER_DIMENSION_TPS,        500);
+        setRefreshInterval(builder, conf, "infoHeapUsed",               RenderEventHandler.MASK_HEAP_USED,                   500);
+        setRefreshInterval(builder, conf, "infoHeapCommitted",          RenderEventHandler.MASK_HEAP_COMMITTED,              500);
+        setRefreshInterval(builder, conf, "infoHeapMax",                RenderEventHandler.MASK_HEAP_MAX,                    500);
+        setRefreshInterval(builder, conf, "infoGCYoungCount",           RenderEventHandler.MASK_GC_YOUNG_COUNT,              500);
+        setRefreshInterval(builder, conf, "infoGCOldCount",             RenderEventHandler.MASK_GC_OLD_COUNT,                500);
+        setRefreshInterval(builder, conf, "infoGCTime",                 RenderEventHandler.MASK_GC_TIME,                     500);
+        setRefreshInterval(builder, conf, "infoAllocRateClient",        RenderEventHandler.MASK_ALLOC_RATE_CLIENT,           500);
+        setRefreshInterval(builder, conf, "infoAllocRateServer",        RenderEventHandler.MASK_ALLOC_RATE_SERVER,           500);
+        setRefreshInterval(builder, conf, "infoThreadCPU",              RenderEventHandler.MASK_THREAD_CPU,                  1000);
+
+        compileFormats(builder, coordinateFormat, dateFormatReal, dateFormatMinecraft);
+
+        return builder.build();
+    }
 
-        if (conf.hasChanged())
+    /**
+     * Copies the values re-loaded from the file (parsed from a copy of it) into the current Configuration,
+     * and applies the new config values. Must be called on the client thread.
+     */
+    static void applyReloadedConfigs(Configuration loaded, ConfigSnapshot newSnapshot)
+    {
+        for (String categoryName : loaded.getCategoryNames())
         {
-            conf.save();
+            ConfigCategory from = loaded.getCategory(categoryName);
+            ConfigCategory to = config.getCategory(categoryName);
+            to.setComment(from.getComment());
+
+            for (String key : from.keySet())
+            {
+                to.put(key, from.get(key));
+            }
         }
+
+        applySnapshot(newSnapshot);
+        MiniHud.logger.info("Reloaded the configs from '{}'", config.getConfigFile().getName());
     }
 
-    private static void setInfoType(int mask, boolean value)
+    /**
+     * Compiles the user configurable format strings, so that the
+     * invalid ones get reported once here, and not on every update.
+     */
+    private static void compileFormats(ConfigSnapshot.Builder builder, String coordinateFormat, String dateFormatReal, String dateFormatMinecraft)
+    {
+        try
+        {
+            builder.coordinateFormatProgram = FormatProgram.compileNumberFormat(coordinateFormat, 3);
+        }
+        catch (IllegalArgumentException e)
+        {
+            MiniHud.logger.warn("Invalid coordinate format string '{}': {}", coordinateFormat, e.getMessage());
+            builder.coordinateFormatProgram = FormatProgram.literal("broken coordinate format string!");
+        }
+
+        try
+        {
+            builder.dateFormatRealProgram = FormatProgram.compileDateFormat(dateFormatReal);
+        }
+        catch (IllegalArgumentException e)
+        {
+            MiniHud.logger.warn("Invalid real time format string '{}': {}", dateFormatReal, e.getMessage());
+            builder.dateFormatRealProgram = FormatProgram.literal("Date formatting failed - Invalid date format string?");
+        }
+
+        builder.dateFormatMinecraftProgram = FormatProgram.compilePlaceholderFormat(dateFormatMinecraft, MINECRAFT_TIME_PLACEHOLDERS, MINECRAFT_TIME_MIN_DIGITS);
+    }
+
+    private static void setInfoType(ConfigSnapshot.Builder builder, long mask, boolean value)
     {
         if (value)
         {
-            enabledInfoTypes |= mask;
+            builder.enabledInfoTypes |= mask;
         }
         else
         {
-            enabledInfoTypes &= ~mask;
+            builder.enabledInfoTypes &= ~mask;
         }
     }
 
     private static int getColor(String colorStr, int defaultColor)
     {
-        Pattern pattern = Pattern.compile("(?:0x|#)([a-fA-F0-9]{1,8})");
-        Matcher matcher = pattern.matcher(colorStr);
+        Matcher matcher = PATTERN_HEX_COLOR.matcher(colorStr);
 
         if (matcher.matches())
         {
@@ -461,20 +717,36 @@ public class Configs
         return KeyModifier.NONE;
     }
 
-    private static void assignInfoHotkey(Configuration conf, String configKey, long infoBitmask, String defaultKey)
+    private static void assignInfoHotkey(ConfigSnapshot.Builder builder, Configuration conf, String configKey, long infoBitmask, String defaultKey)
     {
-        assignHotkey(HOTKEY_INFO_MAP, conf, CATEGORY_INFO_HOTKEYS, configKey, defaultKey, infoBitmask);
+        assignHotkey(builder, true, conf, CATEGORY_INFO_HOTKEYS, configKey, defaultKey, infoBitmask);
     }
 
-    private static void assignDebugRendererHotkey(Configuration conf, String configKey, int bitmask, String defaultKey)
+    private static void assignDebugRendererHotkey(ConfigSnapshot.Builder builder, Configuration conf, String configKey, int bitmask, String defaultKey)
     {
-        assignHotkey(HOTKEY_DEBUG_MAP, conf, CATEGORY_DEBUG_HOTKEYS, configKey, defaultKey, bitmask);
+        assignHotkey(builder, false, conf, CATEGORY_DEBUG_HOTKEYS, configKey, defaultKey, bitmask);
     }
 
-    private static void assignHotkey(Multimap<Integer, Long> map, Configuration conf, String configCategory, String configKey, String defaultKey, long bitmask)
+    private static void assignHotkey(ConfigSnapshot.Builder builder, boolean infoHotkey, Configuration conf,
+            String configCategory, String configKey, String defaultKey, long bitmask)
     {
-        String keyName = conf.get(configCategory, configKey, defaultKey).getString();
+        int keyCode = getKeyCode(conf.get(configCategory, configKey, defaultKey).getString());
 
+        if (keyCode != Keyboard.KEY_NONE)
+        {
+            if (infoHotkey)
+            {
+                builder.addInfoHotkey(keyCode, bitmask);
+            }
+            else
+            {
+                builder.addDebugHotkey(keyCode, bitmask);
+            }
+        }
+    }
+
+    private static int getKeyCode(String keyName)
+    {
         try
         {
             int keyCode = Integer.parseInt(keyName);
@@ -482,57 +754,35 @@ public class Configs
             // Don't interpret the numbers 0..9 as raw keycodes, but instead as the number keys (below)
             if (keyCode > Keyboard.KEY_0)
             {
-                map.put(keyCode, bitmask);
-                return;
+                return keyCode;
             }
         }
         catch (NumberFormatException e)
         {
         }
 
-        int keyCode = Keyboard.getKeyIndex(keyName.toUpperCase());
-
-        if (keyCode != Keyboard.KEY_NONE)
-        {
-            map.put(keyCode, bitmask);
-        }
-    }
-
-    public static long getBitmaskForInfoKey(int keyCode)
-    {
-        return getBitmaskForKey(HOTKEY_INFO_MAP, keyCode);
-    }
-
-    public static long getBitmaskForDebugKey(int keyCode)
-    {
-        return getBitmaskForKey(HOTKEY_DEBUG_MAP, keyCode);
+        return Keyboard.getKeyIndex(keyName.toUpperCase());
     }
 
-    public static long getBitmaskForKey(Multimap<Integer, Long> map, int keyCode)
+    /**
+     * @return the current config values. Grab this once and use the same snapshot
+     * for the whole operation, to see a consistent set of values even if the configs get reloaded.
+     */
+    public static ConfigSnapshot getSnapshot()
     {
-        Collection<Long> masks = map.get(keyCode);
-        long fullMask = 0;
-
-        if (masks != null)
-        {
-            for (Long mask : masks)
-            {
-                fullMask |= mask;
-            }
-        }
-
-        return fullMask;
+        return snapshot;
     }
 
-    private static void setLinePosition(Configuration conf, String configKey, long infoBitmask)
+    private static void setLinePosition(ConfigSnapshot.Builder builder, Configuration conf, String configKey, long infoBitmask)
     {
         int value = conf.get(CATEGORY_INFO_LINE_ORDER, configKey, -1).getInt();
-        LINE_ORDER_MAP.put(infoBitmask, value);
+        builder.setLinePosition(InfoRegistry.getTypeForMask(infoBitmask), value);
     }
 
-    public static int getLinePositionFor(long infoType)
+    private static void setRefreshInterval(ConfigSnapshot.Builder builder, Configuration conf, String configKey, long infoBitmask, int defaultValue)
     {
-        Integer value = LINE_ORDER_MAP.get(infoType);
-        return value != null ? value.intValue() : -1;
+        Property prop = conf.get(CATEGORY_INFO_REFRESH_INTERVALS, configKey, defaultValue);
+        prop.setMinValue(0);
+        builder.setRefreshInterval(InfoRegistry.getTypeForMask(infoBitmask), Math.max(prop.getInt(), 0));
     }
 }
@@ -33,6 +33,7 @@ public class MiniHudGuiFactory extends DefaultGuiFactory
         configElements.add(new ConfigElement(Configs.config.getCategory(Configs.CATEGORY_INFO_HOTKEYS)));
         configElements.add(new ConfigElement(Configs.config.getCategory(Configs.CATEGORY_RENDERER_HOTKEYS)));
         configElements.add(new ConfigElement(Configs.config.getCategory(Configs.CATEGORY_INFO_LINE_ORDER)));
+        configElements.add(new ConfigElement(Configs.config.getCategory(Configs.CATEGORY_INFO_REFRESH_INTERVALS)));
 
         return configElements;
     }
@@ -0,0 +1,61 @@
+package fi.dy.masa.minihud.event;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.debug.DebugRendererNeighborsUpdate;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.event.world.BlockEvent.NeighborNotifyEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import fi.dy.masa.minihud.metrics.Counter;
+import fi.dy.masa.minihud.metrics.Metrics;
+
+/**
+ * Feeds the neighbor updates of the integrated server's worlds to the neighbor update debug renderer.
+ * The events are posted on the server thread, so instead of registering the handler on demand
+ * from the client thread (which would race with the posting), it stays registered,
+ * and only does anything while that debug renderer is enabled.
+ */
+@SideOnly(Side.CLIENT)
+public class DebugNeighborUpdateHandler
+{
+    private final Minecraft mc;
+    private final Counter updatesCounter = Metrics.counter("debug.neighbor_updates");
+    private volatile boolean enabled;
+
+    public DebugNeighborUpdateHandler(Minecraft mc)
+    {
+        this.mc = mc;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    @SubscribeEvent
+    public void onNeighborNotify(NeighborNotifyEvent event)
+    {
+        if (this.enabled == false)
+        {
+            return;
+        }
+
+        // This will only work in single player...
+        // We are catching updates from the server world, and adding them to the debug renderer directly
+        if (event.getWorld().isRemote == false)
+        {
+            final long time = event.getWorld().getTotalWorldTime();
+            final BlockPos pos = event.getPos();
+            this.updatesCounter.increment();
+
+            this.mc.addScheduledTask(new Runnable()
+            {
+                public void run()
+                {
+                    ((DebugRendererNeighborsUpdate) Minecraft.getMinecraft().debugRenderer.neighborsUpdate).addUpdate(time, pos);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package fi.dy.masa.minihud.event;
+
+import java.util.Map;
+import com.google.common.collect.MapMaker;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLiving;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathNavigate;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import fi.dy.masa.minihud.config.Configs;
+import fi.dy.masa.minihud.metrics.Counter;
+import fi.dy.masa.minihud.metrics.Metrics;
+import fi.dy.masa.minihud.metrics.Profiler;
+import fi.dy.masa.minihud.util.Accessors;
+import fi.dy.masa.minihud.util.DebugInfoUtils;
+
+/**
+ * Sends the paths of the entities in the integrated server's world to the pathfinding debug renderer.
+ * The server ticks are posted on the server thread, so the handler stays registered
+ * (see DebugNeighborUpdateHandler), and only does anything while that debug renderer is enabled.
+ */
+@SideOnly(Side.CLIENT)
+public class DebugPathfindingHandler
+{
+    private final Minecraft mc;
+    private final Map<Entity, Path> oldPaths = new MapMaker().weakKeys().weakValues().<Entity, Path>makeMap();
+    private final Counter packetsCounter = Metrics.counter("debug.path_packets");
+    private final Profiler.Section broadcastSection = Profiler.section(Profiler.SECTION_PATH_BROADCAST);
+    private int tickCounter;
+    private volatile boolean enabled;
+
+    public DebugPathfindingHandler(Minecraft mc)
+    {
+        this.mc = mc;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent event)
+    {
+        if (this.enabled == false)
+        {
+            return;
+        }
+
+        // Send the custom packet with the Path data
+        if (event.phase == TickEvent.Phase.END && this.mc.world != null && ++this.tickCounter >= 10)
+        {
+            this.tickCounter = 0;
+            final long start = System.nanoTime();
+            MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+            World world = server != null ? server.getWorld(this.mc.world.provider.getDimension()) : null;
+
+            if (world != null)
+            {
+                for (Entity entity : world.loadedEntityList)
+                {
+                    PathNavigate navigator = entity instanceof EntityLiving ? ((EntityLiving) entity).getNavigator() : null;
+
+                    if (navigator != null && this.isAnyPlayerWithinRange(world, entity, 64))
+                    {
+                        final Path path = navigator.getPath();
+                        Path old = this.oldPaths.get(entity);
+
+                        if (path == null)
+                        {
+                            continue;
+                        }
+
+                        boolean isSamepath = old != null && old.isSamePath(path);
+
+                        if (old == null || isSamepath == false || old.getCurrentPathIndex() != path.getCurrentPathIndex())
+                        {
+                            final int id = entity.getEntityId();
+                            final float maxDistance = Configs.getSnapshot().debugRendererPathfindingEnablePointWidth ? Accessors.getMaxDistanceToWaypoint(navigator) : 0F;
+
+                            DebugInfoUtils.sendPacketDebugPath(server, id, path, maxDistance);
+                            this.packetsCounter.increment();
+
+                            if (isSamepath == false)
+                            {
+                                // Make a copy via a PacketBuffer... :/
+                                PacketBuffer buf = DebugInfoUtils.writePathTobuffer(path);
+                                this.oldPaths.put(entity, Path.read(buf));
+                            }
+                            else if (old != null)
+                            {
+                                old.setCurrentPathIndex(path.getCurrentPathIndex());
+                            }
+                        }
+                    }
+                }
+            }
+
+            this.broadcastSection.end(start);
+        }
+    }
+
+    private boolean isAnyPlayerWithinRange(World world, Entity entity, double range)
+    {
+        for (int i = 0; i < world.playerEntities.size(); ++i)
+        {
+            EntityPlayer player = world.playerEntities.get(i);
+
+            double distSq = player.getDistanceSq(entity.posX, entity.posY, entity.posZ);
+
+            if (range < 0.0D || distSq < range * range)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
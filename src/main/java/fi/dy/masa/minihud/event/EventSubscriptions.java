@@ -0,0 +1,43 @@
+package fi.dy.masa.minihud.event;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import net.minecraftforge.common.MinecraftForge;
+
+/**
+ * Registers and unregisters the event handlers that are only needed while some feature is enabled,
+ * so that the disabled features don't receive (or cost anything for) the events at all.
+ * Only to be used from the client thread, and only for handlers of the events that are posted
+ * on the client thread. The event bus doesn't guard against a handler getting (un)registered
+ * while another thread is posting the same event, so the handlers of the server thread's events
+ * need to stay registered, and check a volatile flag instead.
+ */
+public class EventSubscriptions
+{
+    private static final Set<Object> SUBSCRIBED = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    /**
+     * Registers the handler to the event bus if subscribed is true, otherwise unregisters it.
+     * Does nothing if the handler is already in the requested state.
+     */
+    public static void setSubscribed(Object handler, boolean subscribed)
+    {
+        if (subscribed)
+        {
+            if (SUBSCRIBED.add(handler))
+            {
+                MinecraftForge.EVENT_BUS.register(handler);
+            }
+        }
+        else if (SUBSCRIBED.remove(handler))
+        {
+            MinecraftForge.EVENT_BUS.unregister(handler);
+        }
+    }
+
+    public static boolean isSubscribed(Object handler)
+    {
+        return SUBSCRIBED.contains(handler);
+    }
+}
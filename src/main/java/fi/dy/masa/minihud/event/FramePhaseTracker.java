@@ -0,0 +1,114 @@
+package fi.dy.masa.minihud.event;
+
+import net.minecraftforge.client.event.RenderGameOverlayEvent;
+import net.minecraftforge.client.event.RenderGameOverlayEvent.ElementType;
+import net.minecraftforge.client.event.RenderWorldLastEvent;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import fi.dy.masa.minihud.metrics.RollingTimes;
+
+/**
+ * Times the phases of the client's frames and ticks, from the events surrounding them:
+ * the client tick (ClientTickEvent START - END), the world rendering (RenderTickEvent START - RenderWorldLastEvent)
+ * and the in-game GUI/HUD rendering (RenderGameOverlayEvent.Pre - Post of ElementType.ALL).
+ * The start events are received first and the end events last, so that the handlers of the other mods
+ * are included in the phases. Only registered to the event bus while the frame phases line is enabled.
+ */
+public class FramePhaseTracker
+{
+    /** The number of the most recent ticks/frames used for the averages and maxima */
+    private static final int WINDOW_SIZE = 128;
+
+    private final RollingTimes tickTimes = new RollingTimes(WINDOW_SIZE);
+    private final RollingTimes worldTimes = new RollingTimes(WINDOW_SIZE);
+    private final RollingTimes hudTimes = new RollingTimes(WINDOW_SIZE);
+    private long tickStart = -1L;
+    private long frameStart = -1L;
+    private long hudStart = -1L;
+
+    /**
+     * Clears the collected times, for when the tracker is re-registered after a while
+     */
+    public void reset()
+    {
+        this.tickTimes.clear();
+        this.worldTimes.clear();
+        this.hudTimes.clear();
+        this.tickStart = -1L;
+        this.frameStart = -1L;
+        this.hudStart = -1L;
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onClientTickStart(TickEvent.ClientTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.START)
+        {
+            this.tickStart = System.nanoTime();
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onClientTickEnd(TickEvent.ClientTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END && this.tickStart >= 0L)
+        {
+            this.tickTimes.record(System.nanoTime() - this.tickStart);
+            this.tickStart = -1L;
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onRenderTickStart(TickEvent.RenderTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.START)
+        {
+            this.frameStart = System.nanoTime();
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onRenderWorldLast(RenderWorldLastEvent event)
+    {
+        if (this.frameStart >= 0L)
+        {
+            this.worldTimes.record(System.nanoTime() - this.frameStart);
+            this.frameStart = -1L;
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onRenderOverlayPre(RenderGameOverlayEvent.Pre event)
+    {
+        if (event.getType() == ElementType.ALL)
+        {
+            this.hudStart = System.nanoTime();
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onRenderOverlayPost(RenderGameOverlayEvent.Post event)
+    {
+        if (event.getType() == ElementType.ALL && this.hudStart >= 0L)
+        {
+            this.hudTimes.record(System.nanoTime() - this.hudStart);
+            this.hudStart = -1L;
+        }
+    }
+
+    public RollingTimes getTickTimes()
+    {
+        return this.tickTimes;
+    }
+
+    public RollingTimes getWorldTimes()
+    {
+        return this.worldTimes;
+    }
+
+    public RollingTimes getHudTimes()
+    {
+        return this.hudTimes;
+    }
+}
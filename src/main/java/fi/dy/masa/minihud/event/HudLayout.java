@@ -0,0 +1,169 @@
+package fi.dy.masa.minihud.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.FontRenderer;
+import net.minecraft.client.gui.ScaledResolution;
+import fi.dy.masa.minihud.event.RenderEventHandler.HudAlignment;
+import fi.dy.masa.minihud.info.InfoFrame;
+
+/**
+ * Computes the positions of the HUD lines for the different alignments.
+ * The pixel widths of the lines are cached by their text, so they only get measured
+ * when a line's text changes (or the unicode font setting changes), and the ScaledResolution is only re-created
+ * when the window size, the GUI scale or the unicode setting changes.
+ */
+public class HudLayout
+{
+    /** The width cache gets cleared when it grows past this, so the old texts don't pile up */
+    private static final int MAX_CACHED_WIDTHS = 512;
+
+    private final Minecraft mc;
+    private final Map<String, Integer> widths = new HashMap<String, Integer>();
+    private ScaledResolution resolution;
+    private int displayWidth = -1;
+    private int displayHeight = -1;
+    private int guiScale = -1;
+    private boolean unicode;
+    private int lineCount;
+    private int[] lineX = new int[0];
+    private int[] lineY = new int[0];
+    private int[] lineWidth = new int[0];
+
+    public HudLayout(Minecraft mc)
+    {
+        this.mc = mc;
+    }
+
+    /**
+     * @return the current ScaledResolution. The same instance is returned until the window or the GUI scale changes.
+     */
+    public ScaledResolution getScaledResolution()
+    {
+        if (this.resolution == null || this.mc.displayWidth != this.displayWidth || this.mc.displayHeight != this.displayHeight ||
+            this.mc.gameSettings.guiScale != this.guiScale || this.mc.isUnicode() != this.unicode)
+        {
+            // Toggling the unicode font doesn't reload the resources, but it changes the glyph widths
+            if (this.resolution != null && this.mc.isUnicode() != this.unicode)
+            {
+                this.widths.clear();
+            }
+
+            this.displayWidth = this.mc.displayWidth;
+            this.displayHeight = this.mc.displayHeight;
+            this.guiScale = this.mc.gameSettings.guiScale;
+            this.unicode = this.mc.isUnicode();
+            this.resolution = new ScaledResolution(this.mc);
+        }
+
+        return this.resolution;
+    }
+
+    /**
+     * @return the width of the text in pixels, as given by the FontRenderer
+     */
+    public int getStringWidth(String text)
+    {
+        Integer width = this.widths.get(text);
+
+        if (width == null)
+        {
+            if (this.widths.size() >= MAX_CACHED_WIDTHS)
+            {
+                this.widths.clear();
+            }
+
+            width = this.mc.fontRenderer.getStringWidth(text);
+            this.widths.put(text, width);
+        }
+
+        return width.intValue();
+    }
+
+    /**
+     * Clears the cached text widths. Needs to be called when the font changes.
+     */
+    public void invalidateWidths()
+    {
+        this.widths.clear();
+    }
+
+    /**
+     * Computes the positions of the lines of the given frame.
+     * The positions are in the font scaled coordinates, ie. inside the GlStateManager.scale(scale) call.
+     */
+    public void update(InfoFrame frame, int xOff, int yOff, double scale, HudAlignment alignment)
+    {
+        final FontRenderer fontRenderer = this.mc.fontRenderer;
+        final ScaledResolution res = this.getScaledResolution();
+        final int lineCount = frame.getLineCount();
+        final int lineHeight = fontRenderer.FONT_HEIGHT + 2;
+
+        if (this.lineX.length < lineCount)
+        {
+            this.lineX = new int[lineCount];
+            this.lineY = new int[lineCount];
+            this.lineWidth = new int[lineCount];
+        }
+
+        this.lineCount = lineCount;
+        int x = xOff;
+        int y = yOff;
+
+        switch (alignment)
+        {
+            case BOTTOM_LEFT:
+            case BOTTOM_RIGHT:
+                y = (int) ((res.getScaledHeight() + 4) / scale) - yOff - lineCount * lineHeight;
+                break;
+            case CENTER:
+                y = (int) ((res.getScaledHeight() / 2 + 4) / scale) - yOff - (lineCount * lineHeight / 2);
+                break;
+            default:
+        }
+
+        for (int i = 0; i < lineCount; i++)
+        {
+            int width = this.getStringWidth(frame.getLine(i));
+
+            switch (alignment)
+            {
+                case TOP_RIGHT:
+                case BOTTOM_RIGHT:
+                    x = (int) (res.getScaledWidth() / scale) - width - xOff;
+                    break;
+                case CENTER:
+                    x = (int) (res.getScaledWidth() / 2 / scale) - (width / 2) - xOff;
+                    break;
+                default:
+            }
+
+            this.lineX[i] = x;
+            this.lineY[i] = y;
+            this.lineWidth[i] = width;
+
+            y += lineHeight;
+        }
+    }
+
+    public int getLineCount()
+    {
+        return this.lineCount;
+    }
+
+    public int getX(int line)
+    {
+        return this.lineX[line];
+    }
+
+    public int getY(int line)
+    {
+        return this.lineY[line];
+    }
+
+    public int getWidth(int line)
+    {
+        return this.lineWidth[line];
+    }
+}
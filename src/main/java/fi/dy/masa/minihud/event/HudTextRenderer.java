@@ -0,0 +1,339 @@
+package fi.dy.masa.minihud.event;
+
+import java.nio.ByteOrder;
+import org.lwjgl.opengl.GL11;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.FontRenderer;
+import net.minecraft.client.gui.ScaledResolution;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.client.resources.IResourceManager;
+import net.minecraft.client.resources.IResourceManagerReloadListener;
+import net.minecraft.util.ResourceLocation;
+import fi.dy.masa.minihud.config.ConfigSnapshot;
+import fi.dy.masa.minihud.event.RenderEventHandler.HudAlignment;
+import fi.dy.masa.minihud.info.InfoFrame;
+import fi.dy.masa.minihud.util.TextGeometry;
+
+/**
+ * Draws the info lines of the HUD. The line positions (see HudLayout), the background quads and the glyph quads
+ * of all the lines are only built when the lines, or the settings or screen size affecting them, change.
+ * On the other frames the same vertex data just gets drawn again, with one draw call
+ * for all the backgrounds, followed by one draw call for all the text.
+ * If some line can't be built by the TextGeometry (for example because of the unicode font),
+ * then the text gets drawn with the FontRenderer as usual, using the cached line positions.
+ */
+public class HudTextRenderer implements IResourceManagerReloadListener
+{
+    private static final ResourceLocation FONT_TEXTURE = new ResourceLocation("textures/font/ascii.png");
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    /** The number of ints per vertex in the POSITION_TEX_COLOR format: x, y, z, u, v and the packed color */
+    private static final int VERTEX_SIZE = 6;
+    /** The number of ints per vertex in the POSITION_COLOR format: x, y, z and the packed color */
+    private static final int BACKGROUND_VERTEX_SIZE = 4;
+
+    private final Minecraft mc;
+    private final TextGeometry geometry = new TextGeometry();
+    private int[] vertexData = new int[0];
+    private int[] backgroundData = new int[0];
+    private boolean useGeometry;
+    private final HudLayout layout;
+
+    // The values that the cached layout and geometry were built with
+    private boolean dirty = true;
+    private InfoFrame frame;
+    private ScaledResolution resolution;
+    private int xOff;
+    private int yOff;
+    private int color;
+    private int backgroundColor;
+    private double scale;
+    private boolean shadow;
+    private boolean unicode;
+    private HudAlignment alignment;
+
+    // The batch sizes of the last rendered frame
+    private int backgroundQuads;
+    private int textQuads;
+    private int drawCalls;
+
+    public HudTextRenderer(Minecraft mc)
+    {
+        this.mc = mc;
+        this.layout = new HudLayout(mc);
+    }
+
+    public HudLayout getLayout()
+    {
+        return this.layout;
+    }
+
+    /**
+     * Forces the layout and the geometry to be rebuilt on the next frame
+     */
+    public void invalidate()
+    {
+        this.dirty = true;
+    }
+
+    @Override
+    public void onResourceManagerReload(IResourceManager resourceManager)
+    {
+        // The font's glyph widths may have changed
+        this.layout.invalidateWidths();
+        this.invalidate();
+    }
+
+    public void render(InfoFrame frame, ConfigSnapshot config)
+    {
+        final int xOff = config.textPosX;
+        final int yOff = config.textPosY;
+        final double scale = config.fontScale;
+        final FontRenderer fontRenderer = this.mc.fontRenderer;
+        final ScaledResolution res = this.layout.getScaledResolution();
+
+        if (this.dirty || frame != this.frame || xOff != this.xOff || yOff != this.yOff || scale != this.scale || res != this.resolution ||
+            config.hudAlignment != this.alignment || config.fontColor != this.color ||
+            config.textBackgroundColor != this.backgroundColor ||
+            config.useFontShadow != this.shadow || fontRenderer.getUnicodeFlag() != this.unicode)
+        {
+            this.frame = frame;
+            this.xOff = xOff;
+            this.yOff = yOff;
+            this.scale = scale;
+            this.resolution = res;
+            this.alignment = config.hudAlignment;
+            this.color = config.fontColor;
+            this.backgroundColor = config.textBackgroundColor;
+            this.shadow = config.useFontShadow;
+            this.unicode = fontRenderer.getUnicodeFlag();
+            this.dirty = false;
+
+            this.layout.update(frame, xOff, yOff, scale, this.alignment);
+            this.updateBackgrounds(fontRenderer);
+            this.updateGeometry(fontRenderer);
+        }
+
+        final int lineCount = frame.getLineCount();
+        this.backgroundQuads = 0;
+        this.textQuads = 0;
+        this.drawCalls = 0;
+
+        if (scale != 1f)
+        {
+            GlStateManager.pushMatrix();
+            GlStateManager.scale(scale, scale, scale);
+        }
+
+        if (config.useTextBackground)
+        {
+            this.drawBackgrounds();
+        }
+
+        if (this.useGeometry)
+        {
+            this.drawGeometry();
+        }
+        else
+        {
+            this.drawCalls += lineCount;
+
+            for (int i = 0; i < lineCount; i++)
+            {
+                if (this.shadow)
+                {
+                    fontRenderer.drawStringWithShadow(frame.getLine(i), this.layout.getX(i), this.layout.getY(i), this.color);
+                }
+                else
+                {
+                    fontRenderer.drawString(frame.getLine(i), this.layout.getX(i), this.layout.getY(i), this.color);
+                }
+            }
+        }
+
+        if (scale != 1f)
+        {
+            GlStateManager.popMatrix();
+        }
+    }
+
+    private void updateBackgrounds(FontRenderer fontRenderer)
+    {
+        final HudLayout layout = this.layout;
+        final int lineCount = layout.getLineCount();
+        final int color = packColor(this.backgroundColor);
+
+        if (this.backgroundData.length != lineCount * 4 * BACKGROUND_VERTEX_SIZE)
+        {
+            this.backgroundData = new int[lineCount * 4 * BACKGROUND_VERTEX_SIZE];
+        }
+
+        int index = 0;
+
+        // The same rectangles that Gui.drawRect() would draw for each line
+        for (int i = 0; i < lineCount; i++)
+        {
+            float left = layout.getX(i) - 2;
+            float top = layout.getY(i) - 2;
+            float right = layout.getX(i) + layout.getWidth(i) + 2;
+            float bottom = layout.getY(i) + fontRenderer.FONT_HEIGHT;
+
+            index = putBackgroundVertex(this.backgroundData, index, left, bottom, color);
+            index = putBackgroundVertex(this.backgroundData, index, right, bottom, color);
+            index = putBackgroundVertex(this.backgroundData, index, right, top, color);
+            index = putBackgroundVertex(this.backgroundData, index, left, top, color);
+        }
+    }
+
+    private static int putBackgroundVertex(int[] data, int index, float x, float y, int color)
+    {
+        data[index    ] = Float.floatToRawIntBits(x);
+        data[index + 1] = Float.floatToRawIntBits(y);
+        data[index + 2] = Float.floatToRawIntBits(0f);
+        data[index + 3] = color;
+        return index + BACKGROUND_VERTEX_SIZE;
+    }
+
+    private void updateGeometry(FontRenderer fontRenderer)
+    {
+        final InfoFrame frame = this.frame;
+        final TextGeometry geometry = this.geometry;
+
+        geometry.clear();
+        this.useGeometry = false;
+
+        if (this.unicode)
+        {
+            return;
+        }
+
+        for (char c = TextGeometry.FIRST_CHAR; c <= TextGeometry.LAST_CHAR; c++)
+        {
+            geometry.setCharWidth(c, fontRenderer.getCharWidth(c));
+        }
+
+        for (int i = 0; i < frame.getLineCount(); i++)
+        {
+            if (geometry.addString(frame.getLine(i), this.layout.getX(i), this.layout.getY(i), this.color, this.shadow) == false)
+            {
+                return;
+            }
+        }
+
+        final int vertexCount = geometry.getVertexCount();
+
+        if (this.vertexData.length != vertexCount * VERTEX_SIZE)
+        {
+            this.vertexData = new int[vertexCount * VERTEX_SIZE];
+        }
+
+        final int[] data = this.vertexData;
+        final int zero = Float.floatToRawIntBits(0f);
+
+        for (int v = 0, index = 0; v < vertexCount; v++, index += VERTEX_SIZE)
+        {
+            data[index    ] = Float.floatToRawIntBits(geometry.getX(v));
+            data[index + 1] = Float.floatToRawIntBits(geometry.getY(v));
+            data[index + 2] = zero;
+            data[index + 3] = Float.floatToRawIntBits(geometry.getU(v));
+            data[index + 4] = Float.floatToRawIntBits(geometry.getV(v));
+            data[index + 5] = packColor(geometry.getColor(v));
+        }
+
+        this.useGeometry = true;
+    }
+
+    private void drawBackgrounds()
+    {
+        if (this.backgroundData.length == 0)
+        {
+            return;
+        }
+
+        GlStateManager.enableBlend();
+        GlStateManager.disableTexture2D();
+        GlStateManager.tryBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ZERO);
+        GlStateManager.color(1f, 1f, 1f, 1f);
+
+        Tessellator tessellator = Tessellator.getInstance();
+        BufferBuilder buffer = tessellator.getBuffer();
+
+        buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_COLOR);
+        buffer.addVertexData(this.backgroundData);
+        tessellator.draw();
+
+        GlStateManager.enableTexture2D();
+        GlStateManager.disableBlend();
+
+        this.backgroundQuads = this.backgroundData.length / (4 * BACKGROUND_VERTEX_SIZE);
+        this.drawCalls++;
+    }
+
+    private void drawGeometry()
+    {
+        if (this.vertexData.length == 0)
+        {
+            return;
+        }
+
+        this.mc.getTextureManager().bindTexture(FONT_TEXTURE);
+        GlStateManager.enableTexture2D();
+        GlStateManager.enableAlpha();
+        GlStateManager.enableBlend();
+        GlStateManager.tryBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ZERO);
+        GlStateManager.color(1f, 1f, 1f, 1f);
+
+        Tessellator tessellator = Tessellator.getInstance();
+        BufferBuilder buffer = tessellator.getBuffer();
+
+        buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_TEX_COLOR);
+        buffer.addVertexData(this.vertexData);
+        tessellator.draw();
+
+        GlStateManager.disableBlend();
+
+        this.textQuads = this.vertexData.length / (4 * VERTEX_SIZE);
+        this.drawCalls++;
+    }
+
+    /**
+     * @return the number of background quads drawn in one batch on the last frame
+     */
+    public int getBackgroundQuads()
+    {
+        return this.backgroundQuads;
+    }
+
+    /**
+     * @return the number of glyph quads drawn in one batch on the last frame,
+     * or 0 if the text was drawn with the FontRenderer
+     */
+    public int getTextQuads()
+    {
+        return this.textQuads;
+    }
+
+    /**
+     * @return the number of draw calls made for the HUD text and backgrounds on the last frame.
+     * The text lines drawn with the FontRenderer are counted as one call each.
+     */
+    public int getDrawCalls()
+    {
+        return this.drawCalls;
+    }
+
+    /**
+     * Converts the ARGB color to the RGBA byte order that the BufferBuilder uses, as a native order int
+     */
+    private static int packColor(int argb)
+    {
+        int a = (argb >>> 24) & 0xFF;
+        int r = (argb >>> 16) & 0xFF;
+        int g = (argb >>>  8) & 0xFF;
+        int b = argb & 0xFF;
+
+        return LITTLE_ENDIAN ? (a << 24 | b << 16 | g << 8 | r) : (r << 24 | g << 16 | b << 8 | a);
+    }
+}
@@ -1,40 +1,22 @@
 package fi.dy.masa.minihud.event;
 
-import java.lang.reflect.Field;
-import java.util.Map;
 import org.lwjgl.input.Keyboard;
-import com.google.common.collect.MapMaker;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiScreen;
-import net.minecraft.client.renderer.debug.DebugRenderer;
-import net.minecraft.client.renderer.debug.DebugRendererNeighborsUpdate;
 import net.minecraft.client.settings.KeyBinding;
-import net.minecraft.entity.Entity;
-import net.minecraft.entity.EntityLiving;
-import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.network.PacketBuffer;
-import net.minecraft.pathfinding.Path;
-import net.minecraft.pathfinding.PathNavigate;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.ChatType;
 import net.minecraft.util.text.TextComponentTranslation;
-import net.minecraft.world.World;
 import net.minecraftforge.client.settings.KeyModifier;
-import net.minecraftforge.event.world.BlockEvent.NeighborNotifyEvent;
-import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.InputEvent.KeyInputEvent;
-import net.minecraftforge.fml.common.gameevent.TickEvent;
-import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
-import net.minecraftforge.fml.relauncher.ReflectionHelper;
-import net.minecraftforge.fml.relauncher.ReflectionHelper.UnableToFindFieldException;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
-import fi.dy.masa.minihud.MiniHud;
 import fi.dy.masa.minihud.config.Configs;
+import fi.dy.masa.minihud.metrics.Metrics;
+import fi.dy.masa.minihud.metrics.Profiler;
 import fi.dy.masa.minihud.proxy.ClientProxy;
-import fi.dy.masa.minihud.util.DebugInfoUtils;
+import fi.dy.masa.minihud.util.Accessors;
 
 @SideOnly(Side.CLIENT)
 public class InputEventHandler
@@ -49,38 +31,18 @@ public class InputEventHandler
     private final Minecraft mc;
     private boolean toggledInfo;
 
-    private Field field_Minecraft_actionKeyF3;
-    private Field field_DebugRenderer_collisionBoxEnabled;
-    private Field field_DebugRenderer_heightMapEnabled;
-    private Field field_DebugRenderer_neighborsUpdateEnabled;
-    private Field field_DebugRenderer_pathfindingEnabled;
-    private Field field_DebugRenderer_solidFaceEnabled;
-    private Field field_DebugRenderer_waterEnabled;
-    private Field field_PathNavigate_maxDistanceToWaypoint;
-    private boolean neighborUpdateEnabled;
-    private boolean pathfindingEnabled;
-    private int tickCounter;
-    private final Map<Entity, Path> oldPaths = new MapMaker().weakKeys().weakValues().<Entity, Path>makeMap();
+    private final DebugNeighborUpdateHandler neighborUpdateHandler;
+    private final DebugPathfindingHandler pathfindingHandler;
 
     public InputEventHandler()
     {
         this.mc = Minecraft.getMinecraft();
+        this.neighborUpdateHandler = new DebugNeighborUpdateHandler(this.mc);
+        this.pathfindingHandler = new DebugPathfindingHandler(this.mc);
 
-        try
-        {
-            this.field_Minecraft_actionKeyF3                = ReflectionHelper.findField(Minecraft.class, "field_184129_aV", "actionKeyF3");
-            this.field_DebugRenderer_collisionBoxEnabled    = ReflectionHelper.findField(DebugRenderer.class, "field_191326_j", "collisionBoxEnabled");
-            this.field_DebugRenderer_heightMapEnabled       = ReflectionHelper.findField(DebugRenderer.class, "field_190082_h", "heightMapEnabled");
-            this.field_DebugRenderer_neighborsUpdateEnabled = ReflectionHelper.findField(DebugRenderer.class, "field_191558_l", "neighborsUpdateEnabled");
-            this.field_DebugRenderer_pathfindingEnabled     = ReflectionHelper.findField(DebugRenderer.class, "field_190080_f", "pathfindingEnabled");
-            this.field_DebugRenderer_solidFaceEnabled       = ReflectionHelper.findField(DebugRenderer.class, "field_193853_n", "solidFaceEnabled");
-            this.field_DebugRenderer_waterEnabled           = ReflectionHelper.findField(DebugRenderer.class, "field_190081_g", "waterEnabled");
-            this.field_PathNavigate_maxDistanceToWaypoint   = ReflectionHelper.findField(PathNavigate.class, "field_188561_o", "maxDistanceToWaypoint");
-        }
-        catch (UnableToFindFieldException e)
-        {
-            MiniHud.logger.warn("Failed to reflect DebugRenderer fields");
-        }
+        // These receive events from the server thread, so they stay registered, see DebugNeighborUpdateHandler
+        MinecraftForge.EVENT_BUS.register(this.neighborUpdateHandler);
+        MinecraftForge.EVENT_BUS.register(this.pathfindingHandler);
     }
 
     @SubscribeEvent
@@ -88,7 +50,7 @@ public class InputEventHandler
     {
         int key = Keyboard.getEventKey();
         boolean state = Keyboard.getEventKeyState();
-        long mask = Configs.getBitmaskForDebugKey(key);
+        long mask = Configs.getSnapshot().getDebugHotkeyMask(key);
 
         if (state && Keyboard.isKeyDown(Keyboard.KEY_F3) && mask != 0)
         {
@@ -96,14 +58,22 @@ public class InputEventHandler
             KeyBinding.setKeyBindState(key, false);
 
             // This prevent the F3 screen from opening after releasing the F3 key
-            this.setBoolean(this.field_Minecraft_actionKeyF3, this.mc, true);
+            Accessors.setActionKeyF3(this.mc, true);
             KeyBinding.unPressAllKeys();
 
             return;
         }
 
+        if (state && key != Keyboard.KEY_NONE && key == ClientProxy.keyDumpProfiler.getKeyCode())
+        {
+            Profiler.logReport();
+            Metrics.logReport();
+            this.mc.ingameGUI.addChatMessage(ChatType.GAME_INFO, new TextComponentTranslation("minihud.message.dumped_profiler"));
+            return;
+        }
+
         int toggleKey = ClientProxy.keyToggleMode.getKeyCode();
-        mask = Configs.getBitmaskForInfoKey(key);
+        mask = Configs.getSnapshot().getInfoHotkeyMask(key);
 
         // Toggle the HUD when releasing the toggle key, if no infos were toggled while it was down
         if (state == false && key == toggleKey)
@@ -123,109 +93,6 @@ public class InputEventHandler
         }
     }
 
-    @SubscribeEvent
-    public void onNeighborNotify(NeighborNotifyEvent event)
-    {
-        // This will only work in single player...
-        // We are catching updates from the server world, and adding them to the debug renderer directly
-        if (this.neighborUpdateEnabled && event.getWorld().isRemote == false)
-        {
-            final long time = event.getWorld().getTotalWorldTime();
-            final BlockPos pos = event.getPos();
-
-            this.mc.addScheduledTask(new Runnable()
-            {
-                public void run()
-                {
-                    ((DebugRendererNeighborsUpdate) Minecraft.getMinecraft().debugRenderer.neighborsUpdate).addUpdate(time, pos);
-                }
-            });
-        }
-    }
-
-    @SubscribeEvent
-    public void onServerTick(ServerTickEvent event)
-    {
-        // Send the custom packet with the Path data, if that debug renderer is enabled
-        if (this.pathfindingEnabled && event.phase == TickEvent.Phase.END && this.mc.world != null && ++this.tickCounter >= 10)
-        {
-            this.tickCounter = 0;
-            MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
-            World world = server != null ? server.getWorld(this.mc.world.provider.getDimension()) : null;
-
-            if (world != null)
-            {
-                for (Entity entity : world.loadedEntityList)
-                {
-                    PathNavigate navigator = entity instanceof EntityLiving ? ((EntityLiving) entity).getNavigator() : null;
-
-                    if (navigator != null && this.isAnyPlayerWithinRange(world, entity, 64))
-                    {
-                        final Path path = navigator.getPath();
-                        Path old = this.oldPaths.get(entity);
-
-                        if (path == null)
-                        {
-                            continue;
-                        }
-
-                        boolean isSamepath = old != null && old.isSamePath(path);
-
-                        if (old == null || isSamepath == false || old.getCurrentPathIndex() != path.getCurrentPathIndex())
-                        {
-                            final int id = entity.getEntityId();
-                            final float maxDistance = Configs.debugRendererPathfindingEnablePointWidth ? this.getPathPointWidth(navigator) : 0F;
-
-                            DebugInfoUtils.sendPacketDebugPath(server, id, path, maxDistance);
-
-                            if (isSamepath == false)
-                            {
-                                // Make a copy via a PacketBuffer... :/
-                                PacketBuffer buf = DebugInfoUtils.writePathTobuffer(path);
-                                this.oldPaths.put(entity, Path.read(buf));
-                            }
-                            else if (old != null)
-                            {
-                                old.setCurrentPathIndex(path.getCurrentPathIndex());
-                            }
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean isAnyPlayerWithinRange(World world, Entity entity, double range)
-    {
-        for (int i = 0; i < world.playerEntities.size(); ++i)
-        {
-            EntityPlayer player = world.playerEntities.get(i);
-
-            double distSq = player.getDistanceSq(entity.posX, entity.posY, entity.posZ);
-
-            if (range < 0.0D || distSq < range * range)
-            {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private float getPathPointWidth(PathNavigate navigator)
-    {
-        try
-        {
-            return (float) this.field_PathNavigate_maxDistanceToWaypoint.getFloat(navigator);
-        }
-        catch (Exception e)
-        {
-            MiniHud.logger.warn("Failed to reflect PathNavigate#maxDistanceToWaypoint value", e);
-        }
-
-        return 0f;
-    }
-
     private void toggleDebugRenderers(int mask)
     {
         for (int i = 0; i < 6; i++)
@@ -236,34 +103,34 @@ public class InputEventHandler
             switch (bit)
             {
                 case MASK_DEBUG_COLLISION_BOXES:
-                    status = this.toggleBoolean(this.field_DebugRenderer_collisionBoxEnabled, this.mc.debugRenderer);
+                    status = this.toggleDebugRenderer(bit);
                     this.printMessage("collisions", status ? "ON" : "OFF");
                     break;
 
                 case MASK_DEBUG_HEIGHT_MAP:
-                    status = this.toggleBoolean(this.field_DebugRenderer_heightMapEnabled, this.mc.debugRenderer);
+                    status = this.toggleDebugRenderer(bit);
                     this.printMessage("height_map", status ? "ON" : "OFF");
                     break;
 
                 case MASK_DEBUG_NEIGHBOR_UPDATE:
-                    status = this.toggleBoolean(this.field_DebugRenderer_neighborsUpdateEnabled, this.mc.debugRenderer);
-                    this.neighborUpdateEnabled = status;
+                    status = this.toggleDebugRenderer(bit);
+                    this.neighborUpdateHandler.setEnabled(status);
                     this.printMessage("neighbor_updates", status ? "ON" : "OFF");
                     break;
 
                 case MASK_DEBUG_PATHFINDING:
-                    status = this.toggleBoolean(this.field_DebugRenderer_pathfindingEnabled, this.mc.debugRenderer);
-                    this.pathfindingEnabled = status;
+                    status = this.toggleDebugRenderer(bit);
+                    this.pathfindingHandler.setEnabled(status);
                     this.printMessage("pathfinding", status ? "ON" : "OFF");
                     break;
 
                 case MASK_DEBUG_SOLID_FACES:
-                    status = this.toggleBoolean(this.field_DebugRenderer_solidFaceEnabled, this.mc.debugRenderer);
+                    status = this.toggleDebugRenderer(bit);
                     this.printMessage("solid_faces", status ? "ON" : "OFF");
                     break;
 
                 case MASK_DEBUG_WATER:
-                    status = this.toggleBoolean(this.field_DebugRenderer_waterEnabled, this.mc.debugRenderer);
+                    status = this.toggleDebugRenderer(bit);
                     this.printMessage("water", status ? "ON" : "OFF");
                     break;
 
@@ -278,32 +145,11 @@ public class InputEventHandler
         this.mc.ingameGUI.addChatMessage(ChatType.GAME_INFO, new TextComponentTranslation("minihud.message.toggled_debug_mode." + key, args));
     }
 
-    private void setBoolean(Field field, Object obj, boolean value)
+    private boolean toggleDebugRenderer(int debugMask)
     {
-        try
-        {
-            field.set(obj, value);
-        }
-        catch (Exception e)
-        {
-            MiniHud.logger.warn("InputEventHandler: Failed set a boolean via a reflected field");
-        }
-    }
-
-    private boolean toggleBoolean(Field field, Object obj)
-    {
-        try
-        {
-            boolean newValue = ! field.getBoolean(obj);
-            field.set(obj, newValue);
-            return newValue;
-        }
-        catch (Exception e)
-        {
-            MiniHud.logger.warn("InputEventHandler: Failed to toggle a boolean via a reflected field");
-        }
-
-        return false;
+        boolean newValue = ! Accessors.isDebugRendererEnabled(this.mc.debugRenderer, debugMask);
+        Accessors.setDebugRendererEnabled(this.mc.debugRenderer, debugMask, newValue);
+        return newValue;
     }
 
     public static boolean isRequiredKeyActive(KeyModifier key)
@@ -0,0 +1,191 @@
+package fi.dy.masa.minihud.event;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import fi.dy.masa.minihud.config.ConfigSnapshot;
+import fi.dy.masa.minihud.info.InfoProvider;
+import fi.dy.masa.minihud.info.InfoRegistry;
+
+/**
+ * The enabled info types in the order their lines should be added in.
+ * This only changes when the enabled types or the line order configs change,
+ * so it gets built once at that point instead of on every info line update.
+ */
+public class LineOrderPlan
+{
+    public static final LineOrderPlan EMPTY = new LineOrderPlan(new BitSet(), new int[0], new int[0], new int[0], 0);
+
+    private final BitSet enabledTypes;
+    private final int[] types;
+    private final int[] refreshIntervals;
+    private final int[] priorityOrder;
+    private final int inputs;
+
+    private LineOrderPlan(BitSet enabledTypes, int[] types, int[] refreshIntervals, int[] priorityOrder, int inputs)
+    {
+        this.enabledTypes = enabledTypes;
+        this.types = types;
+        this.refreshIntervals = refreshIntervals;
+        this.priorityOrder = priorityOrder;
+        this.inputs = inputs;
+    }
+
+    /**
+     * @return the enabled info types. Don't modify!
+     */
+    public BitSet getEnabledTypes()
+    {
+        return this.enabledTypes;
+    }
+
+    /**
+     * @return the ids of the info types whose providers should be called, in the configured line order.
+     * Only the first enabled type of each group is included, since the group shares one line.
+     * Don't modify the returned array!
+     */
+    public int[] getTypes()
+    {
+        return this.types;
+    }
+
+    /**
+     * @return the refresh interval in milliseconds for the type at the given index in the plan.
+     * 0 means that the line gets refreshed on every game tick.
+     */
+    public int getRefreshInterval(int index)
+    {
+        return this.refreshIntervals[index];
+    }
+
+    /**
+     * @return the indices of the types in the plan, in the order their providers should get
+     * the chance to rebuild their lines when the update time budget is limited.
+     * The cheaper providers come first, so that a few expensive ones can't starve the rest.
+     * Don't modify the returned array!
+     */
+    public int[] getPriorityOrder()
+    {
+        return this.priorityOrder;
+    }
+
+    /**
+     * @return the combined InfoContext.INPUT_* bits of the providers in the plan
+     */
+    public int getInputs()
+    {
+        return this.inputs;
+    }
+
+    public static LineOrderPlan create(BitSet enabledTypes, ConfigSnapshot config)
+    {
+        enabledTypes = (BitSet) enabledTypes.clone();
+        List<LinePos> positions = new ArrayList<LinePos>();
+
+        for (int type = enabledTypes.nextSetBit(0); type >= 0; type = enabledTypes.nextSetBit(type + 1))
+        {
+            if (InfoRegistry.isRegistered(type))
+            {
+                positions.add(new LinePos(config.getLinePosition(type), type));
+            }
+        }
+
+        // The sort is stable, so types with the same position stay in the id order
+        Collections.sort(positions);
+
+        BitSet addedGroups = new BitSet(InfoRegistry.getGroupCount());
+        List<LinePos> plan = new ArrayList<LinePos>();
+
+        for (LinePos pos : positions)
+        {
+            int group = InfoRegistry.getGroup(pos.type);
+
+            // The group's line is added at the position of its first enabled type
+            if (addedGroups.get(group) == false)
+            {
+                addedGroups.set(group);
+                plan.add(pos);
+            }
+        }
+
+        int[] types = new int[plan.size()];
+        int[] refreshIntervals = new int[types.length];
+        int inputs = 0;
+
+        for (int i = 0; i < types.length; i++)
+        {
+            types[i] = plan.get(i).type;
+            refreshIntervals[i] = getRefreshInterval(types[i], enabledTypes, config);
+            inputs |= InfoRegistry.getProvider(types[i]).getInputs();
+        }
+
+        return new LineOrderPlan(enabledTypes, types, refreshIntervals, getPriorityOrder(types), inputs);
+    }
+
+    private static int[] getPriorityOrder(int[] types)
+    {
+        int[] order = new int[types.length];
+        int count = 0;
+
+        // Group the indices by the provider cost, keeping the line order within each cost
+        for (InfoProvider.Cost cost : InfoProvider.Cost.values())
+        {
+            for (int i = 0; i < types.length; i++)
+            {
+                if (InfoRegistry.getProvider(types[i]).getCost() == cost)
+                {
+                    order[count++] = i;
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * The types that share a line get refreshed using the shortest interval among the enabled types of that group
+     */
+    private static int getRefreshInterval(int type, BitSet enabledTypes, ConfigSnapshot config)
+    {
+        int group = InfoRegistry.getGroup(type);
+        int interval = config.getRefreshInterval(type);
+
+        for (int other = enabledTypes.nextSetBit(0); other >= 0; other = enabledTypes.nextSetBit(other + 1))
+        {
+            if (InfoRegistry.isRegistered(other) && InfoRegistry.getGroup(other) == group)
+            {
+                interval = Math.min(interval, config.getRefreshInterval(other));
+            }
+        }
+
+        return interval;
+    }
+
+    private static class LinePos implements Comparable<LinePos>
+    {
+        private final int position;
+        private final int type;
+
+        private LinePos(int position, int type)
+        {
+            this.position = position;
+            this.type = type;
+        }
+
+        @Override
+        public int compareTo(LinePos other)
+        {
+            if (this.position < 0)
+            {
+                return other.position >= 0 ? 1 : 0;
+            }
+            else if (other.position < 0 && this.position >= 0)
+            {
+                return -1;
+            }
+
+            return this.position < other.position ? -1 : (this.position > other.position ? 1 : 0);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import net.minecraft.entity.Entity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
+import fi.dy.masa.minihud.config.ConfigSnapshot;
 import fi.dy.masa.minihud.config.Configs;
 
 public class OverlayRenderer
@@ -31,11 +32,11 @@ public class OverlayRenderer
             BlockPos pos2 = new BlockPos(rx + 511, 256, rz + 511);
             Minecraft mc = Minecraft.getMinecraft();
             int rangeH = (mc.gameSettings.renderDistanceChunks + 1) * 16;
-            int color = Configs.regionOverlayColor;
-            float a = ((color >>> 24) & 0xFF) / 255f;
-            float r = ((color >>> 16) & 0xFF) / 255f;
-            float g = ((color >>>  8) & 0xFF) / 255f;
-            float b = ((color       ) & 0xFF) / 255f;
+            ConfigSnapshot config = Configs.getSnapshot();
+            float a = config.regionOverlayAlpha;
+            float r = config.regionOverlayRed;
+            float g = config.regionOverlayGreen;
+            float b = config.regionOverlayBlue;
 
             GlStateManager.glLineWidth(1.6f);
 
@@ -1,53 +1,39 @@
 package fi.dy.masa.minihud.event;
 
-import java.lang.invoke.MethodHandle;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Random;
-import net.minecraft.block.Block;
-import net.minecraft.block.properties.IProperty;
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.FontRenderer;
-import net.minecraft.client.gui.Gui;
-import net.minecraft.client.gui.ScaledResolution;
-import net.minecraft.client.renderer.GlStateManager;
-import net.minecraft.client.renderer.RenderGlobal;
-import net.minecraft.client.renderer.chunk.RenderChunk;
-import net.minecraft.entity.Entity;
-import net.minecraft.entity.EntityList;
-import net.minecraft.entity.EntityLivingBase;
-import net.minecraft.entity.player.EntityPlayerMP;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.EnumFacing;
-import net.minecraft.util.ResourceLocation;
-import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.MathHelper;
-import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.client.resources.IReloadableResourceManager;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentTranslation;
-import net.minecraft.util.text.TextFormatting;
-import net.minecraft.world.DifficultyInstance;
-import net.minecraft.world.EnumSkyBlock;
-import net.minecraft.world.World;
-import net.minecraft.world.WorldType;
-import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.client.event.ClientChatReceivedEvent;
 import net.minecraftforge.client.event.RenderGameOverlayEvent;
 import net.minecraftforge.client.event.RenderGameOverlayEvent.ElementType;
 import net.minecraftforge.client.event.RenderWorldLastEvent;
-import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.WorldEvent;
-import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 import fi.dy.masa.minihud.MiniHud;
+import fi.dy.masa.minihud.config.ConfigSnapshot;
 import fi.dy.masa.minihud.config.Configs;
-import fi.dy.masa.minihud.util.MethodHandleUtils;
-import fi.dy.masa.minihud.util.MethodHandleUtils.UnableToFindMethodHandleException;
+import fi.dy.masa.minihud.info.AsyncInfoProvider;
+import fi.dy.masa.minihud.info.InfoContext;
+import fi.dy.masa.minihud.info.InfoFrame;
+import fi.dy.masa.minihud.info.InfoLines;
+import fi.dy.masa.minihud.info.InfoProvider;
+import fi.dy.masa.minihud.info.InfoRegistry;
+import fi.dy.masa.minihud.metrics.Counter;
+import fi.dy.masa.minihud.metrics.FrameTimes;
+import fi.dy.masa.minihud.metrics.JvmSampler;
+import fi.dy.masa.minihud.metrics.Metrics;
+import fi.dy.masa.minihud.metrics.Profiler;
+import fi.dy.masa.minihud.metrics.Rate;
+import fi.dy.masa.minihud.metrics.ThreadCpuSampler;
+import fi.dy.masa.minihud.util.LineBuilder;
 
 public class RenderEventHandler
 {
@@ -80,79 +66,116 @@ public class RenderEventHandler
     public static final int MASK_BLOCK_PROPERTIES           = 0x04000000;
     public static final int MASK_CHUNK                      = 0x08000000;
     public static final int MASK_REGION_FILE                = 0x10000000;
+    public static final int MASK_LINE_REBUILDS              = 0x20000000;
+    public static final int MASK_HUD_DRAW_BATCHES           = 0x40000000;
+    public static final long MASK_INIT_TIMINGS              = 0x0080000000L;
+    public static final long MASK_METRICS                   = 0x0100000000L;
+    public static final long MASK_PROFILER                  = 0x0200000000L;
+    public static final long MASK_FPS_LOW_1                 = 0x0400000000L;
+    public static final long MASK_FPS_LOW_01                = 0x0800000000L;
+    public static final long MASK_FRAME_TIME_MAX            = 0x1000000000L;
+    public static final long MASK_FRAME_PHASES              = 0x2000000000L;
+    public static final long MASK_SERVER_MSPT               = 0x4000000000L;
+    public static final long MASK_SERVER_TPS                = 0x8000000000L;
 
     public static final long MASK_REGION_OVERLAY            = 0x010000000000L;
+    public static final long MASK_SERVER_DIMENSION_TPS      = 0x020000000000L;
+    public static final long MASK_HEAP_USED                 = 0x040000000000L;
+    public static final long MASK_HEAP_COMMITTED            = 0x080000000000L;
+    public static final long MASK_HEAP_MAX                  = 0x100000000000L;
+    public static final long MASK_GC_YOUNG_COUNT            = 0x200000000000L;
+    public static final long MASK_GC_OLD_COUNT              = 0x400000000000L;
+    public static final long MASK_GC_TIME                   = 0x800000000000L;
+    public static final long MASK_ALLOC_RATE_CLIENT         = 0x01000000000000L;
+    public static final long MASK_ALLOC_RATE_SERVER         = 0x02000000000000L;
+    public static final long MASK_THREAD_CPU                = 0x04000000000000L;
+
+    /** All the world overlay bits of the legacy mask, the other bits are the info lines */
+    private static final long MASK_ALL_OVERLAYS             = MASK_REGION_OVERLAY;
 
     private static RenderEventHandler instance;
-    private final MethodHandle methodHandle_RenderGlobal_getRenderedChunks;
     private final Minecraft mc;
-    private final Date date;
-    private final Random rand = new Random();
     private boolean enabled;
     private long mask;
-    private int fps;
-    private int fpsCounter;
-    private long fpsUpdateTime = Minecraft.getSystemTime();
-    private long infoUpdateTime;
+    private final BitSet enabledTypes = new BitSet();
+    private LineOrderPlan linePlan = LineOrderPlan.EMPTY;
+    private final Counter framesCounter = Metrics.counter("hud.frames");
+    private final FrameTimes frameTimes = new FrameTimes();
+    private long nextLineUpdateTime;
+    /** The AsyncInfoProvider result count as of the last line update */
+    private int asyncResultCount;
     private long serverSeed;
     private boolean serverSeedValid;
-    private int addedTypes;
     private final List<StringHolder> lines = new ArrayList<StringHolder>();
+    private final List<String> frameLines = new ArrayList<String>();
+    private volatile InfoFrame frame = InfoFrame.EMPTY;
+    private LineCache[] lineCaches = new LineCache[0];
+    private final Counter linesRebuiltCounter = Metrics.counter("lines.rebuilt");
+    private final Counter linesTotalCounter = Metrics.counter("lines.total");
+    private final Counter linesDeferredCounter = Metrics.counter("lines.deferred");
+    private final Rate linesRebuiltRate = new Rate(this.linesRebuiltCounter, 1000L);
+    private final Rate linesTotalRate = new Rate(this.linesTotalCounter, 1000L);
+    private final Rate linesDeferredRate = new Rate(this.linesDeferredCounter, 1000L);
+    private final Profiler.Section updateLinesSection = Profiler.section(Profiler.SECTION_UPDATE_LINES);
+    private final Profiler.Section renderTextSection = Profiler.section(Profiler.SECTION_RENDER_TEXT);
+    private final Profiler.Section renderOverlaysSection = Profiler.section(Profiler.SECTION_RENDER_OVERLAYS);
+    private int[] updateOrder = new int[0];
+    private final LineBuilder lineBuilder = new LineBuilder(128);
+    private final InfoContext context = new InfoContext();
+    private final HudTextRenderer textRenderer;
+    private final Comparator<StringHolder> lineWidthComparator;
+    private final HudListener hudListener = new HudListener();
+    private final OverlayListener overlayListener = new OverlayListener();
+    private final FramePhaseTracker framePhaseTracker = new FramePhaseTracker();
+    private final ServerTickTracker serverTickTracker = new ServerTickTracker();
+    private final JvmSampler jvmSampler = new JvmSampler();
+    private final ThreadCpuSampler threadCpuSampler = new ThreadCpuSampler();
 
     public RenderEventHandler()
     {
         this.mc = Minecraft.getMinecraft();
-        this.date = new Date();
-        this.methodHandle_RenderGlobal_getRenderedChunks = this.getMethodHandle_getRenderedChunks();
+        this.textRenderer = new HudTextRenderer(this.mc);
+        this.lineWidthComparator = new LineWidthComparator(this.textRenderer.getLayout());
+        ((IReloadableResourceManager) this.mc.getResourceManager()).registerReloadListener(this.textRenderer);
+        MinecraftForge.EVENT_BUS.register(this.serverTickTracker);
     }
 
-    private MethodHandle getMethodHandle_getRenderedChunks()
+    private void renderHud()
     {
-        try
-        {
-            return MethodHandleUtils.getMethodHandleVirtual(RenderGlobal.class, new String[] { "func_184382_g", "getRenderedChunks" });
-        }
-        catch (UnableToFindMethodHandleException e)
-        {
-            MiniHud.logger.error("Failed to get a MethodHandle for RenderGlobal#getRenderedChunks()", e);
-            return null;
-        }
-    }
+        final ConfigSnapshot config = Configs.getSnapshot();
 
-    @SubscribeEvent
-    public void onRenderGameOverlay(RenderGameOverlayEvent.Post event)
-    {
-        if (this.enabled == false || event.getType() != ElementType.ALL ||
-            this.mc.gameSettings.showDebugInfo || this.mc.player == null ||
-            (Configs.requireSneak && this.mc.player.isSneaking() == false) ||
-            (Configs.requireHoldingKey && InputEventHandler.isRequiredKeyActive(Configs.requiredKey) == false))
+        if (this.enabled == false || this.mc.gameSettings.showDebugInfo || this.mc.player == null ||
+            (config.requireSneak && this.mc.player.isSneaking() == false) ||
+            (config.requireHoldingKey && InputEventHandler.isRequiredKeyActive(config.requiredKey) == false))
         {
             return;
         }
 
-        if ((this.mask & MASK_FPS) != 0)
-        {
-            this.updateFps();
-        }
+        this.framesCounter.increment();
 
-        long currentTime = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        this.textRenderer.render(this.frame, config);
+        this.renderTextSection.end(start);
+    }
 
-        // Only update the text once per game tick
-        if (currentTime - this.infoUpdateTime >= 50)
+    /**
+     * Gathers the info lines once per game tick, and publishes them as a new frame if they changed
+     */
+    private void onClientTickEnd()
+    {
+        if (this.enabled && this.mc.player != null && this.mc.world != null && this.mc.getRenderViewEntity() != null)
         {
-            this.updateLines(this.mask);
-            this.infoUpdateTime = currentTime;
+            this.updateLines(System.currentTimeMillis());
         }
-
-        this.renderText(Configs.textPosX, Configs.textPosY, this.lines);
     }
 
-    @SubscribeEvent
-    public void onRenderWorldLast(RenderWorldLastEvent event)
+    private void renderOverlays(float partialTicks)
     {
-        if (this.enabled && (this.mask & 0xFFFFFFFF00000000L) != 0L && this.mc.player != null)
+        if (this.enabled && (this.mask & MASK_ALL_OVERLAYS) != 0L && this.mc.player != null)
         {
-            OverlayRenderer.renderOverlays(this.mask, this.mc.player, event.getPartialTicks());
+            final long start = System.nanoTime();
+            OverlayRenderer.renderOverlays(this.mask, this.mc.player, partialTicks);
+            this.renderOverlaysSection.end(start);
         }
     }
 
@@ -160,6 +183,7 @@ public class RenderEventHandler
     public void onWorldLoad(WorldEvent.Load event)
     {
         this.serverSeedValid = false;
+        this.invalidateLineCaches();
     }
 
     @SubscribeEvent
@@ -178,6 +202,7 @@ public class RenderEventHandler
                 {
                     this.serverSeed = Long.parseLong(text.getFormatArgs()[0].toString());
                     this.serverSeedValid = true;
+                    this.invalidateLineCaches();
                     MiniHud.logger.info("Received world seed from the vanilla /seed command: {}", this.serverSeed);
                 }
                 catch (Exception e)
@@ -192,6 +217,7 @@ public class RenderEventHandler
                 {
                     this.serverSeed = Long.parseLong(text.getFormatArgs()[1].toString());
                     this.serverSeedValid = true;
+                    this.invalidateLineCaches();
                     MiniHud.logger.info("Received world seed from the JED '/jed seed' command: {}", this.serverSeed);
                 }
                 catch (Exception e)
@@ -212,665 +238,528 @@ public class RenderEventHandler
         return instance;
     }
 
-    public void setEnabledMask(int mask)
+    /**
+     * Sets the enabled info types and overlays from the given legacy mask.
+     * The info types with an id past the first 64 are not affected.
+     */
+    public void setEnabledMask(long mask)
     {
         this.mask = mask;
-    }
+        this.enabledTypes.clear(0, 64);
 
-    public void xorEnabledMask(long mask)
-    {
-        this.mask ^= mask;
-    }
-
-    public void setEnabled(boolean enabled)
-    {
-        this.enabled = enabled;
-    }
+        for (int bit = 0; bit < 64; bit++)
+        {
+            if ((mask & (1L << bit)) != 0)
+            {
+                this.enabledTypes.set(bit);
+            }
+        }
 
-    public void toggleEnabled()
-    {
-        this.enabled = ! this.enabled;
+        this.updateLinePlan();
+        this.updateEventSubscriptions();
     }
 
-    private void updateFps()
+    public void setInfoTypeEnabled(int type, boolean enabled)
     {
-        this.fpsCounter++;
+        this.enabledTypes.set(type, enabled);
 
-        if (Minecraft.getSystemTime() >= (this.fpsUpdateTime + 1000L))
+        if (type < 64)
         {
-            this.fpsUpdateTime = Minecraft.getSystemTime();
-            this.fps = this.fpsCounter;
-            this.fpsCounter = 0;
+            this.mask = enabled ? (this.mask | (1L << type)) : (this.mask & ~(1L << type));
         }
+
+        this.updateLinePlan();
+        this.updateEventSubscriptions();
     }
 
-    private void updateLines(long enabledMask)
+    /**
+     * Rebuilds the line plan with the current (possibly hotkey toggled) enabled types, and all the lines.
+     * Needs to be called whenever new config values have been applied, since the line order,
+     * the refresh intervals and the formats may have changed.
+     */
+    public void onConfigsChanged()
     {
-        this.lines.clear();
-        this.addedTypes = 0;
+        this.updateLinePlan();
+    }
 
-        // Get the info line order based on the configs
-        List<LinePos> positions = new ArrayList<LinePos>();
+    private void updateLinePlan()
+    {
+        this.linePlan = LineOrderPlan.create(this.enabledTypes, Configs.getSnapshot());
 
-        for (int i = 0; i < 32; i++)
+        if (this.lineCaches.length < InfoRegistry.getTypeCount())
         {
-            long mask = (1 << i);
+            LineCache[] caches = new LineCache[InfoRegistry.getTypeCount()];
 
-            if ((enabledMask & mask) != 0)
+            for (int i = 0; i < caches.length; i++)
             {
-                positions.add(new LinePos(Configs.getLinePositionFor(mask), mask));
+                caches[i] = i < this.lineCaches.length ? this.lineCaches[i] : new LineCache(this.lineBuilder);
             }
+
+            this.lineCaches = caches;
         }
 
-        Collections.sort(positions);
+        this.invalidateLineCaches();
+    }
 
-        for (LinePos pos : positions)
+    /**
+     * Forces all the info lines to be rebuilt on the next update.
+     * This needs to be called when something that the lines depend on changes,
+     * that isn't tracked by the InfoContext (for example the configs or the enabled types).
+     */
+    public void invalidateLineCaches()
+    {
+        for (LineCache cache : this.lineCaches)
         {
-            this.addLine(pos.type);
+            cache.invalidate();
         }
 
-        if (Configs.sortLinesByLength)
-        {
-            Collections.sort(this.lines);
-
-            if (Configs.sortLinesReversed)
-            {
-                Collections.reverse(this.lines);
-            }
-        }
+        this.nextLineUpdateTime = 0;
     }
 
-    private void addLine(String text)
+    public void xorEnabledMask(long mask)
     {
-        this.lines.add(new StringHolder(text));
+        this.setEnabledMask(this.mask ^ mask);
     }
 
-    private void addLine(long type)
+    public void setEnabled(boolean enabled)
     {
-        Entity entity = this.mc.getRenderViewEntity();
-        BlockPos pos = new BlockPos(entity.posX, entity.getEntityBoundingBox().minY, entity.posZ);
-
-        // FIXME Java y u no switch on long?!
-        switch ((int) type)
+        if (enabled && this.enabled == false)
         {
-            case MASK_FPS:
-                this.addLine(String.format("%d fps", this.fps));
-                break;
+            // The frames weren't tracked while the HUD was disabled
+            this.frameTimes.skipFrame();
+        }
 
-            case MASK_TIME_REAL:
-                try
-                {
-                    SimpleDateFormat sdf = new SimpleDateFormat(Configs.dateFormatReal);
-                    this.date.setTime(System.currentTimeMillis());
-                    this.addLine(sdf.format(this.date));
-                }
-                catch (Exception e)
-                {
-                    this.addLine("Date formatting failed - Invalid date format string?");
-                }
-                break;
+        this.enabled = enabled;
+        this.updateEventSubscriptions();
+    }
 
-            case MASK_TIME_TICKS:
-                long current = entity.getEntityWorld().getWorldTime();
-                long total = entity.getEntityWorld().getTotalWorldTime();
-                this.addLine(String.format("World time: %5d - total: %d", current, total));
-                break;
+    public void toggleEnabled()
+    {
+        this.setEnabled(! this.enabled);
+    }
 
-            case MASK_TIME_MC:
-                try
-                {
-                    long timeDay = (int) entity.getEntityWorld().getWorldTime();
-                    int day = (int) (timeDay / 24000) + 1;
-                    // 1 tick = 3.6 seconds in MC (0.2777... seconds IRL)
-                    int hour = (int) ((timeDay / 1000) + 6) % 24;
-                    int min = (int) (timeDay / 16.666666) % 60;
-                    int sec = (int) (timeDay / 0.277777) % 60;
-
-                    String str = Configs.dateFormatMinecraft;
-                    str = str.replace("{DAY}",  String.format("%d", day));
-                    str = str.replace("{HOUR}", String.format("%02d", hour));
-                    str = str.replace("{MIN}",  String.format("%02d", min));
-                    str = str.replace("{SEC}",  String.format("%02d", sec));
-
-                    this.addLine(str);
-                }
-                catch (Exception e)
-                {
-                    this.addLine("Date formatting failed - Invalid date format string?");
-                }
-                break;
+    /**
+     * Keeps the client thread listeners on the event bus only while they have something to do
+     */
+    private void updateEventSubscriptions()
+    {
+        EventSubscriptions.setSubscribed(this.hudListener, this.enabled);
+        EventSubscriptions.setSubscribed(this.overlayListener, this.enabled && (this.mask & MASK_ALL_OVERLAYS) != 0L);
 
-            case MASK_COORDINATES:
-            case MASK_DIMENSION:
-            {
-                // Don't add the same line multiple times
-                if ((this.addedTypes & (MASK_COORDINATES | MASK_DIMENSION)) != 0)
-                {
-                    break;
-                }
+        boolean trackPhases = this.enabled && (this.mask & MASK_FRAME_PHASES) != 0L;
 
-                String pre = "";
-                StringBuilder str = new StringBuilder(128);
+        if (trackPhases && EventSubscriptions.isSubscribed(this.framePhaseTracker) == false)
+        {
+            this.framePhaseTracker.reset();
+        }
 
-                if ((this.mask & MASK_COORDINATES) != 0)
-                {
-                    if (Configs.coordinateFormatCustomized)
-                    {
-                        try
-                        {
-                            str.append(String.format(Configs.coordinateFormat,
-                                entity.posX, entity.getEntityBoundingBox().minY, entity.posZ));
-                        }
-                        // Uh oh, someone done goofed their format string... :P
-                        catch (Exception e)
-                        {
-                            str.append("broken coordinate format string!");
-                        }
-                    }
-                    else
-                    {
-                        str.append(String.format("XYZ: %.2f / %.4f / %.2f",
-                            entity.posX, entity.getEntityBoundingBox().minY, entity.posZ));
-                    }
-
-                    pre = " / ";
-                }
+        EventSubscriptions.setSubscribed(this.framePhaseTracker, trackPhases);
 
-                if ((this.mask & MASK_DIMENSION) != 0)
-                {
-                    str.append(String.format(String.format("%sdim: %d", pre, entity.getEntityWorld().provider.getDimension())));
-                }
+        // The server ticks are posted on the server thread, so the tracker stays registered
+        this.serverTickTracker.setEnabled(this.enabled && (this.mask & (MASK_SERVER_MSPT | MASK_SERVER_TPS | MASK_SERVER_DIMENSION_TPS)) != 0L);
+    }
 
-                this.addLine(str.toString());
-                this.addedTypes |= (MASK_COORDINATES | MASK_DIMENSION);
-                break;
-            }
+    private void updateLines(long currentTime)
+    {
+        final int asyncResultCount = AsyncInfoProvider.getResultCount();
 
-            case MASK_BLOCK:
-            case MASK_CHUNK:
-            case MASK_REGION_FILE:
-            {
-                // Don't add the same line multiple times
-                if ((this.addedTypes & (MASK_BLOCK | MASK_CHUNK | MASK_REGION_FILE)) != 0)
-                {
-                    break;
-                }
+        // None of the lines are due for a refresh yet, and no background worker has published new lines
+        if (currentTime < this.nextLineUpdateTime && asyncResultCount == this.asyncResultCount)
+        {
+            return;
+        }
 
-                String pre = "";
-                StringBuilder str = new StringBuilder(128);
+        this.asyncResultCount = asyncResultCount;
 
-                if ((this.mask & MASK_BLOCK) != 0)
-                {
-                    str.append(String.format("Block: %d, %d, %d", pos.getX(), pos.getY(), pos.getZ()));
-                    pre = " / ";
-                }
+        final ConfigSnapshot config = Configs.getSnapshot();
+        final long start = System.nanoTime();
 
-                if ((this.mask & MASK_CHUNK) != 0)
-                {
-                    str.append(pre).append(String.format("Sub-Chunk: %d, %d, %d", pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
-                    pre = " / ";
-                }
+        this.lines.clear();
+        this.context.update(this.mc, config, this.linePlan.getInputs());
+        this.updateLineCounters();
 
-                if ((this.mask & MASK_REGION_FILE) != 0)
-                {
-                    str.append(pre).append(String.format("Region: r.%d.%d", pos.getX() >> 9, pos.getZ() >> 9));
-                    pre = " / ";
-                }
+        this.rebuildLines(currentTime, config);
 
-                this.addLine(str.toString());
-                this.addedTypes |= (MASK_BLOCK | MASK_CHUNK | MASK_REGION_FILE);
-                break;
-            }
+        final int[] types = this.linePlan.getTypes();
+        long nextUpdateTime = Long.MAX_VALUE;
 
-            case MASK_BLOCK_IN_CHUNK:
-                this.addLine(String.format("Block: %d, %d, %d in Sub-Chunk: %d, %d, %d",
-                        pos.getX() & 0xF, pos.getY() & 0xF, pos.getZ() & 0xF,
-                        pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
-                break;
+        for (int i = 0; i < types.length; i++)
+        {
+            LineCache cache = this.lineCaches[types[i]];
+            cache.addLinesTo(this.lines);
+            this.linesTotalCounter.add(cache.lineCount);
+            // The deferred lines are still due, so they get another chance on the next tick
+            nextUpdateTime = Math.min(nextUpdateTime, cache.checkedTime + this.linePlan.getRefreshInterval(i));
+        }
 
-            case MASK_FACING:
-            {
-                EnumFacing facing = entity.getHorizontalFacing();
-                String str = "Invalid";
+        this.nextLineUpdateTime = nextUpdateTime;
 
-                switch (facing)
-                {
-                    case NORTH: str = "Negative Z"; break;
-                    case SOUTH: str = "Positive Z"; break;
-                    case WEST:  str = "Negative X"; break;
-                    case EAST:  str = "Positive X"; break;
-                    default:
-                }
+        if (config.sortLinesByLength)
+        {
+            Collections.sort(this.lines, this.lineWidthComparator);
 
-                this.addLine(String.format("Facing: %s (%s)", facing, str));
-                break;
+            if (config.sortLinesReversed)
+            {
+                Collections.reverse(this.lines);
             }
+        }
 
-            case MASK_LIGHT:
-                // Prevent a crash when outside of world
-                if (pos.getY() >= 0 && pos.getY() < 256 && this.mc.world.isBlockLoaded(pos))
-                {
-                    Chunk chunk = this.mc.world.getChunk(pos);
-
-                    if (chunk.isEmpty() == false)
-                    {
-                        this.addLine(String.format("Light: %d (block: %d, sky: %d)",
-                                chunk.getLightSubtracted(pos, 0),
-                                chunk.getLightFor(EnumSkyBlock.BLOCK, pos),
-                                chunk.getLightFor(EnumSkyBlock.SKY, pos)));
-                    }
-                }
-                break;
-
-            case MASK_YAW:
-            case MASK_PITCH:
-            case MASK_SPEED:
-            {
-                // Don't add the same line multiple times
-                if ((this.addedTypes & (MASK_YAW | MASK_PITCH | MASK_SPEED)) != 0)
-                {
-                    break;
-                }
+        this.publishFrame();
+        this.updateLinesSection.end(start);
+    }
 
-                String pre = "";
-                StringBuilder str = new StringBuilder(128);
+    /**
+     * Rebuilds the lines that are due for a refresh, and whose inputs have changed since they were last built.
+     * The providers get called in the priority order, the ones deferred on the previous update first.
+     * Once the update time budget runs out, the rest of the due lines are deferred to the next update,
+     * and they keep their previous values until then.
+     */
+    private void rebuildLines(long currentTime, ConfigSnapshot config)
+    {
+        final long updateIndex = this.context.getUpdateIndex();
+        final BitSet enabledTypes = this.linePlan.getEnabledTypes();
+        final int[] types = this.linePlan.getTypes();
+        final int[] order = this.getUpdateOrder();
+        final long budget = config.infoUpdateBudgetNanos;
+        final long startTime = System.nanoTime();
+        boolean rebuiltAny = false;
+
+        for (int i = 0; i < order.length; i++)
+        {
+            final int index = order[i];
+            final int type = types[index];
+            final InfoProvider provider = InfoRegistry.getProvider(type);
+            LineCache cache = this.lineCaches[type];
 
-                if ((this.mask & MASK_YAW) != 0)
-                {
-                    str.append(String.format("%syaw: %.1f", pre, MathHelper.wrapDegrees(entity.rotationYaw)));
-                    pre = " / ";
-                }
+            // A newly published async result gets shown right away, regardless of the refresh interval
+            final boolean asyncResult = (provider.getInputs() & InfoContext.INPUT_ASYNC_RESULT) != 0 &&
+                                        this.context.hasChangedSince(InfoContext.INPUT_ASYNC_RESULT, cache.builtOnUpdate);
 
-                if ((this.mask & MASK_PITCH) != 0)
-                {
-                    str.append(String.format("%spitch: %.1f", pre, MathHelper.wrapDegrees(entity.rotationPitch)));
-                    pre = " / ";
-                }
+            if (asyncResult == false && currentTime - cache.checkedTime < this.linePlan.getRefreshInterval(index))
+            {
+                continue;
+            }
 
-                if ((this.mask & MASK_SPEED) != 0)
-                {
-                    double dx = entity.posX - entity.lastTickPosX;
-                    double dy = entity.posY - entity.lastTickPosY;
-                    double dz = entity.posZ - entity.lastTickPosZ;
-                    double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
-                    str.append(String.format("%sspeed: %.3f m/s", pre, dist * 20));
-                    pre = " / ";
-                }
+            if (this.context.hasChangedSince(provider.getInputs(), cache.builtOnUpdate) == false)
+            {
+                cache.checkedTime = currentTime;
+                cache.deferred = false;
+                continue;
+            }
 
-                this.addLine(str.toString());
-                this.addedTypes |= (MASK_YAW | MASK_PITCH | MASK_SPEED);
-                break;
+            // At least one provider always gets to run, so that the lines can't get stuck
+            if (budget > 0 && rebuiltAny && System.nanoTime() - startTime >= budget)
+            {
+                cache.deferred = true;
+                this.linesDeferredCounter.increment();
+                continue;
             }
 
-            case MASK_CHUNK_SECTIONS:
-                this.addLine(String.format("C: %d", this.getRenderedChunks()));
-                break;
+            if (cache.section == null)
+            {
+                cache.section = Profiler.section(Profiler.SECTION_PROVIDER_PREFIX + provider.getClass().getSimpleName());
+            }
 
-            case MASK_CHUNK_SECTIONS_LINE:
-                this.addLine(this.mc.renderGlobal.getDebugInfoRenders());
-                break;
+            final long providerStart = System.nanoTime();
+            cache.clear();
+            provider.addLines(this.context, enabledTypes, cache);
+            cache.section.end(providerStart);
 
-            case MASK_CHUNK_UPDATES:
-                this.addLine(String.format("Chunk updates: %d", RenderChunk.renderChunksUpdated));
-                break;
+            cache.builtOnUpdate = updateIndex;
+            cache.checkedTime = currentTime;
+            cache.deferred = false;
+            this.linesRebuiltCounter.add(cache.lineCount);
+            rebuiltAny = true;
+        }
+    }
 
-            case MASK_PARTICLE_COUNT:
-                this.addLine(String.format("P: %s", this.mc.effectRenderer.getStatistics()));
-                break;
+    /**
+     * @return the plan indices in the priority order, with the ones deferred on the previous update moved to the front
+     */
+    private int[] getUpdateOrder()
+    {
+        final int[] types = this.linePlan.getTypes();
+        final int[] priorityOrder = this.linePlan.getPriorityOrder();
 
-            case MASK_DIFFICULTY:
-                if (this.mc.world.isBlockLoaded(pos))
-                {
-                    DifficultyInstance diff = this.mc.world.getDifficultyForLocation(pos);
+        if (this.updateOrder.length != priorityOrder.length)
+        {
+            this.updateOrder = new int[priorityOrder.length];
+        }
 
-                    if (this.mc.isIntegratedServerRunning() && this.mc.getIntegratedServer() != null)
-                    {
-                        EntityPlayerMP player = this.mc.getIntegratedServer().getPlayerList().getPlayerByUUID(this.mc.player.getUniqueID());
+        int count = 0;
 
-                        if (player != null)
-                        {
-                            diff = player.world.getDifficultyForLocation(new BlockPos(player));
-                        }
-                    }
+        for (int index : priorityOrder)
+        {
+            if (this.lineCaches[types[index]].deferred)
+            {
+                this.updateOrder[count++] = index;
+            }
+        }
 
-                    this.addLine(String.format("Local Difficulty: %.2f // %.2f (Day %d)",
-                            diff.getAdditionalDifficulty(), diff.getClampedAdditionalDifficulty(), this.mc.world.getWorldTime() / 24000L));
-                }
-                break;
+        for (int index : priorityOrder)
+        {
+            if (this.lineCaches[types[index]].deferred == false)
+            {
+                this.updateOrder[count++] = index;
+            }
+        }
 
-            case MASK_BIOME:
-                // Prevent a crash when outside of world
-                if (pos.getY() >= 0 && pos.getY() < 256 && this.mc.world.isBlockLoaded(pos))
-                {
-                    Chunk chunk = this.mc.world.getChunk(pos);
+        return this.updateOrder;
+    }
 
-                    if (chunk.isEmpty() == false)
-                    {
-                        this.addLine("Biome: " + chunk.getBiome(pos, this.mc.world.getBiomeProvider()).getBiomeName());
-                    }
-                }
-                break;
+    private void publishFrame()
+    {
+        this.frameLines.clear();
 
-            case MASK_BIOME_REGISTRY_NAME:
-                // Prevent a crash when outside of world
-                if (pos.getY() >= 0 && pos.getY() < 256 && this.mc.world.isBlockLoaded(pos))
-                {
-                    Chunk chunk = this.mc.world.getChunk(pos);
+        for (StringHolder holder : this.lines)
+        {
+            this.frameLines.add(holder.str);
+        }
 
-                    if (chunk.isEmpty() == false)
-                    {
-                        this.addLine("Biome reg name: " +
-                                chunk.getBiome(pos, this.mc.world.getBiomeProvider()).getRegistryName().toString());
-                    }
-                }
-                break;
+        // Only allocate a new frame when some line actually changed
+        if (this.frame.hasSameLines(this.frameLines) == false)
+        {
+            this.frame = InfoFrame.of(this.frameLines);
+        }
+    }
 
-            case MASK_ENTITIES:
-                String ent = this.mc.renderGlobal.getDebugInfoEntities();
+    private void updateLineCounters()
+    {
+        final long currentTime = Minecraft.getSystemTime();
 
-                int p = ent.indexOf(",");
+        this.linesRebuiltRate.update(currentTime);
+        this.linesTotalRate.update(currentTime);
+        this.linesDeferredRate.update(currentTime);
+    }
 
-                if (p != -1)
-                {
-                    ent = ent.substring(0, p);
-                }
+    public int getFps()
+    {
+        return (int) Math.round(this.frameTimes.getAverageFps(1000000000L));
+    }
 
-                this.addLine(ent);
-                break;
+    public boolean isServerSeedValid()
+    {
+        return this.serverSeedValid;
+    }
 
-            case MASK_SLIME_CHUNK:
-                boolean valid = false;
-                long seed = 0;
-                String result;
-                MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+    public long getServerSeed()
+    {
+        return this.serverSeed;
+    }
 
-                if (server != null && server.isSinglePlayer())
-                {
-                    World world = DimensionManager.getWorld(entity.getEntityWorld().provider.getDimension());
-                    seed = world != null ? world.getSeed() : 0;
-                    valid = world != null;
-                }
-                else if (this.serverSeedValid)
-                {
-                    seed = this.serverSeed;
-                    valid = true;
-                }
+    public int getLinesRebuiltPerSecond()
+    {
+        return (int) this.linesRebuiltRate.getRate();
+    }
 
-                if (valid)
-                {
-                    if (this.canSlimeSpawnAt(entity.posX, entity.posZ, seed))
-                    {
-                        result = TextFormatting.GREEN.toString() + "YES" + TextFormatting.RESET.toString() + TextFormatting.WHITE.toString();
-                    }
-                    else
-                    {
-                        result = TextFormatting.RED.toString() + "NO" + TextFormatting.RESET.toString() + TextFormatting.WHITE.toString();
-                    }
-                }
-                else
-                {
-                    result = "<world seed not known>";
-                }
+    public int getLinesTotalPerSecond()
+    {
+        return (int) this.linesTotalRate.getRate();
+    }
 
-                this.addLine("Slime chunk: " + result);
-                break;
+    /**
+     * @return the durations of the recent frames. Only tracked while the HUD is enabled.
+     */
+    public FrameTimes getFrameTimes()
+    {
+        return this.frameTimes;
+    }
 
-            case MASK_LOOKING_AT_ENTITY:
-                if (this.mc.objectMouseOver != null &&
-                    this.mc.objectMouseOver.typeOfHit == RayTraceResult.Type.ENTITY &&
-                    this.mc.objectMouseOver.entityHit != null)
-                {
-                    Entity target = this.mc.objectMouseOver.entityHit;
-
-                    if (target instanceof EntityLivingBase)
-                    {
-                        EntityLivingBase living = (EntityLivingBase) target;
-                        this.addLine(String.format("Entity: %s - HP: %.1f / %.1f",
-                                target.getName(), living.getHealth(), living.getMaxHealth()));
-                    }
-                    else
-                    {
-                        this.addLine(String.format("Entity: %s", target.getName()));
-                    }
-                }
-                break;
+    public FramePhaseTracker getFramePhaseTracker()
+    {
+        return this.framePhaseTracker;
+    }
 
-            case MASK_LOOKING_AT_ENTITY_REGNAME:
-                if (this.mc.objectMouseOver != null &&
-                    this.mc.objectMouseOver.typeOfHit == RayTraceResult.Type.ENTITY &&
-                    this.mc.objectMouseOver.entityHit != null)
-                {
-                    ResourceLocation regName = EntityList.getKey(this.mc.objectMouseOver.entityHit);
+    public ServerTickTracker getServerTickTracker()
+    {
+        return this.serverTickTracker;
+    }
 
-                    if (regName != null)
-                    {
-                        this.addLine(String.format("Entity reg name: %s", regName.toString()));
-                    }
-                }
-                break;
+    public JvmSampler getJvmSampler()
+    {
+        return this.jvmSampler;
+    }
 
-            case MASK_LOOKING_AT_BLOCK:
-            case MASK_LOOKING_AT_BLOCK_CHUNK:
-                // Don't add the same line multiple times
-                if ((this.addedTypes & (MASK_LOOKING_AT_BLOCK | MASK_LOOKING_AT_BLOCK_CHUNK)) != 0)
-                {
-                    break;
-                }
+    public ThreadCpuSampler getThreadCpuSampler()
+    {
+        return this.threadCpuSampler;
+    }
 
-                if (this.mc.objectMouseOver != null &&
-                    this.mc.objectMouseOver.typeOfHit == RayTraceResult.Type.BLOCK &&
-                    this.mc.objectMouseOver.getBlockPos() != null)
-                {
-                    BlockPos lookPos = this.mc.objectMouseOver.getBlockPos();
-                    String pre = "";
-                    StringBuilder str = new StringBuilder(128);
-
-                    if ((this.mask & MASK_LOOKING_AT_BLOCK) != 0)
-                    {
-                        str.append(String.format("Looking at block: %d %d %d", lookPos.getX(), lookPos.getY(), lookPos.getZ()));
-                        pre = " // ";
-                    }
-
-                    if ((this.mask & MASK_LOOKING_AT_BLOCK_CHUNK) != 0)
-                    {
-                        str.append(pre).append(String.format("Block: %d %d %d within chunk section: %d %d %d",
-                                lookPos.getX() & 0xF, lookPos.getY() & 0xF, lookPos.getZ() & 0xF,
-                                lookPos.getX() >> 4, lookPos.getY() >> 4, lookPos.getZ() >> 4));
-                    }
-
-                    this.addLine(str.toString());
-                    this.addedTypes |= (MASK_LOOKING_AT_BLOCK | MASK_LOOKING_AT_BLOCK_CHUNK);
-                }
-                break;
+    public HudTextRenderer getTextRenderer()
+    {
+        return this.textRenderer;
+    }
 
-            case MASK_BLOCK_PROPERTIES:
-                this.getBlockProperties();
-                break;
-        }
+    /**
+     * @return how many times per second a due line rebuild was deferred to the next update,
+     * because the update time budget ran out
+     */
+    public int getLinesDeferredPerSecond()
+    {
+        return (int) this.linesDeferredRate.getRate();
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends Comparable<T>> void getBlockProperties()
+    /**
+     * The HUD rendering, frame timing and line gathering events. Only registered while the HUD is enabled.
+     */
+    public class HudListener
     {
-        if (this.mc.objectMouseOver != null &&
-                this.mc.objectMouseOver.typeOfHit == RayTraceResult.Type.BLOCK &&
-                this.mc.objectMouseOver.getBlockPos() != null)
+        @SubscribeEvent
+        public void onRenderGameOverlay(RenderGameOverlayEvent.Post event)
         {
-            BlockPos posLooking = this.mc.objectMouseOver.getBlockPos();
-            IBlockState state = this.mc.world.getBlockState(posLooking);
-
-            if (this.mc.world.getWorldType() != WorldType.DEBUG_ALL_BLOCK_STATES)
+            // The event can't be subscribed to for just one element type, so this is the first thing to check
+            if (event.getType() == ElementType.ALL)
             {
-                state = state.getActualState(this.mc.world, posLooking);
+                RenderEventHandler.this.renderHud();
             }
+        }
 
-            this.lines.add(new StringHolder(String.valueOf(Block.REGISTRY.getNameForObject(state.getBlock()))));
-
-            for (Entry <IProperty<?>, Comparable<?>> entry : state.getProperties().entrySet())
+        @SubscribeEvent
+        public void onRenderTick(TickEvent.RenderTickEvent event)
+        {
+            if (event.phase == TickEvent.Phase.START)
             {
-                IProperty<T> property = (IProperty<T>) entry.getKey();
-                T value = (T) entry.getValue();
-                String valueName = property.getName(value);
-
-                if (Boolean.TRUE.equals(value))
-                {
-                    valueName = TextFormatting.GREEN + valueName;
-                }
-                else if (Boolean.FALSE.equals(value))
-                {
-                    valueName = TextFormatting.RED + valueName;
-                }
-                else if (Integer.class.equals(property.getValueClass()))
-                {
-                    valueName = TextFormatting.AQUA + valueName;
-                }
+                RenderEventHandler.this.frameTimes.onFrameStart(System.nanoTime());
+            }
+        }
 
-                this.lines.add(new StringHolder(property.getName() + ": " + valueName));
+        @SubscribeEvent
+        public void onClientTick(TickEvent.ClientTickEvent event)
+        {
+            if (event.phase == TickEvent.Phase.END)
+            {
+                RenderEventHandler.this.onClientTickEnd();
             }
         }
     }
 
-    private void renderText(int xOff, int yOff, List<StringHolder> lines)
+    /**
+     * The world overlay rendering. Only registered while the HUD and at least one overlay are enabled.
+     */
+    public class OverlayListener
     {
-        final double scale = Configs.activeFontScale;
-
-        if (scale != 1f)
+        @SubscribeEvent
+        public void onRenderWorldLast(RenderWorldLastEvent event)
         {
-            GlStateManager.pushMatrix();
-            GlStateManager.scale(scale, scale, scale);
+            RenderEventHandler.this.renderOverlays(event.getPartialTicks());
         }
+    }
 
-        FontRenderer fontRenderer = this.mc.fontRenderer;
-        ScaledResolution res = new ScaledResolution(this.mc);
-        int x = xOff;
-        int y = yOff;
-
-        switch (Configs.hudAlignment)
+    /**
+     * The lines of one info type from the last time they were built
+     */
+    private static class LineCache implements InfoLines
+    {
+        private final List<StringHolder> holders = new ArrayList<StringHolder>();
+        private final LineBuilder builder;
+        private int lineCount;
+        private long builtOnUpdate = -1;
+        private long checkedTime;
+        private boolean deferred;
+        private Profiler.Section section;
+
+        private LineCache(LineBuilder builder)
         {
-            case BOTTOM_LEFT:
-            case BOTTOM_RIGHT:
-                y = (int) ((res.getScaledHeight() + 4) / scale) - yOff - lines.size() * (fontRenderer.FONT_HEIGHT + 2);
-                break;
-            case CENTER:
-                y = (int) ((res.getScaledHeight() / 2 + 4) / scale) - yOff - (lines.size() * (fontRenderer.FONT_HEIGHT + 2) / 2);
-                break;
-            default:
+            this.builder = builder;
         }
 
-        for (StringHolder holder : lines)
+        private void invalidate()
         {
-            String line = holder.str;
-
-            switch (Configs.hudAlignment)
-            {
-                case TOP_RIGHT:
-                case BOTTOM_RIGHT:
-                    x = (int) (res.getScaledWidth() / scale) - fontRenderer.getStringWidth(line) - xOff;
-                    break;
-                case CENTER:
-                    x = (int) (res.getScaledWidth() / 2 / scale) - (fontRenderer.getStringWidth(line) / 2) - xOff;
-                    break;
-                default:
-            }
-
-            if (Configs.useTextBackground)
-            {
-                Gui.drawRect(x - 2, y - 2, x + fontRenderer.getStringWidth(line) + 2, y + fontRenderer.FONT_HEIGHT, Configs.textBackgroundColor);
-            }
-
-            if (Configs.useFontShadow)
-            {
-                fontRenderer.drawStringWithShadow(line, x, y, Configs.fontColor);
-            }
-            else
-            {
-                fontRenderer.drawString(line, x, y, Configs.fontColor);
-            }
-
-            y += fontRenderer.FONT_HEIGHT + 2;
+            this.builtOnUpdate = -1;
+            this.checkedTime = 0;
+            this.deferred = false;
         }
 
-        if (scale != 1f)
+        private void clear()
         {
-            GlStateManager.popMatrix();
+            this.lineCount = 0;
         }
-    }
 
-    private boolean canSlimeSpawnAt(double posX, double posZ, long worldSeed)
-    {
-        int chunkX = (int) Math.floor(posX / 16d);
-        int chunkZ = (int) Math.floor(posZ / 16d);
-        long slimeSeed = 987234911L;
-        long rngSeed = worldSeed +
-                       (long) (chunkX * chunkX *  4987142) + (long) (chunkX * 5947611) +
-                       (long) (chunkZ * chunkZ) * 4392871L + (long) (chunkZ * 389711) ^ slimeSeed;
+        @Override
+        public LineBuilder newLine()
+        {
+            return this.builder.clear();
+        }
 
-        this.rand.setSeed(rngSeed);
+        @Override
+        public void addLine(LineBuilder builder)
+        {
+            this.getNextLine().setText(builder);
+        }
 
-        return this.rand.nextInt(10) == 0;
-    }
+        @Override
+        public void addLine(String text)
+        {
+            this.getNextLine().setText(text);
+        }
 
-    private int getRenderedChunks()
-    {
-        try
+        /**
+         * Returns the next line holder, so that the holders (and their Strings,
+         * if the text didn't change) get re-used between the rebuilds.
+         */
+        private StringHolder getNextLine()
         {
-            return (int) methodHandle_RenderGlobal_getRenderedChunks.invokeExact(this.mc.renderGlobal);
+            if (this.lineCount >= this.holders.size())
+            {
+                this.holders.add(new StringHolder());
+            }
+
+            return this.holders.get(this.lineCount++);
         }
-        catch (Throwable t)
+
+        private void addLinesTo(List<StringHolder> lines)
         {
-            MiniHud.logger.error("Error while trying invoke RenderGlobal#getRenderedChunks()", t);
-            return -1;
+            for (int i = 0; i < this.lineCount; i++)
+            {
+                lines.add(this.holders.get(i));
+            }
         }
     }
 
-    private class StringHolder implements Comparable<StringHolder>
+    private static class StringHolder
     {
-        public final String str;
+        public String str = "";
 
-        public StringHolder(String str)
+        public void setText(String str)
         {
             this.str = str;
         }
 
-        @Override
-        public int compareTo(StringHolder other)
+        public void setText(LineBuilder builder)
         {
-            int lenThis = this.str.length();
-            int lenOther = other.str.length();
-
-            if (lenThis == lenOther)
+            // Only create a new String when the text has actually changed
+            if (builder.contentEquals(this.str) == false)
             {
-                return 0;
+                this.str = builder.toString();
             }
-
-            return this.str.length() > other.str.length() ? -1 : 1;
         }
     }
 
-    private static class LinePos implements Comparable<LinePos>
+    /**
+     * Sorts the lines by their rendered width in pixels, the widest first.
+     * The widths come from the layout's cache, so they only get measured when the text changes.
+     */
+    private static class LineWidthComparator implements Comparator<StringHolder>
     {
-        private final int position;
-        private final long type;
+        private final HudLayout layout;
 
-        private LinePos(int position, long type)
+        private LineWidthComparator(HudLayout layout)
         {
-            this.position = position;
-            this.type = type;
+            this.layout = layout;
         }
 
         @Override
-        public int compareTo(LinePos other)
+        public int compare(StringHolder holder1, StringHolder holder2)
         {
-            if (this.position < 0)
-            {
-                return other.position >= 0 ? 1 : 0;
-            }
-            else if (other.position < 0 && this.position >= 0)
+            int width1 = this.layout.getStringWidth(holder1.str);
+            int width2 = this.layout.getStringWidth(holder2.str);
+
+            if (width1 == width2)
             {
-                return -1;
+                return 0;
             }
 
-            return this.position < other.position ? -1 : (this.position > other.position ? 1 : 0);
+            return width1 > width2 ? -1 : 1;
         }
     }
 
@@ -0,0 +1,126 @@
+package fi.dy.masa.minihud.event;
+
+import java.util.Arrays;
+import java.util.Map;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
+import fi.dy.masa.minihud.metrics.ServerTickStats;
+
+/**
+ * Computes the integrated server's tick time statistics at the end of every server tick, on the server thread,
+ * directly from the MinecraftServer#tickTimeArray and the Forge per-dimension MinecraftServer#worldTickTimes arrays.
+ * The results are published as an immutable ServerTickStats, that the client thread reads without locking.
+ * The server ticks are posted on the server thread, so the tracker stays registered to the event bus
+ * (see DebugNeighborUpdateHandler), and only does anything while some of the server info lines are enabled.
+ */
+public class ServerTickTracker
+{
+    private volatile ServerTickStats stats;
+    private volatile boolean enabled;
+
+    /**
+     * @return the statistics as of the last server tick, or null if there is no integrated server running
+     */
+    public ServerTickStats getStats()
+    {
+        return this.stats;
+    }
+
+    /**
+     * Starts or stops the tracking. The previous statistics are cleared when starting.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if (enabled && this.enabled == false)
+        {
+            this.stats = null;
+        }
+
+        this.enabled = enabled;
+    }
+
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent event)
+    {
+        if (this.enabled == false || event.phase != TickEvent.Phase.END)
+        {
+            return;
+        }
+
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+
+        if (server == null || server.isSinglePlayer() == false)
+        {
+            this.stats = null;
+            return;
+        }
+
+        long[] times = server.tickTimeArray;
+        Map<Integer, long[]> worldTimes = server.worldTickTimes;
+        int[] dimensions = new int[worldTimes.size()];
+        int count = 0;
+
+        for (Integer dimension : worldTimes.keySet())
+        {
+            if (count < dimensions.length)
+            {
+                dimensions[count++] = dimension.intValue();
+            }
+        }
+
+        dimensions = Arrays.copyOf(dimensions, count);
+        Arrays.sort(dimensions);
+
+        double[] dimensionMean = new double[count];
+        double[] dimensionMax = new double[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            long[] dimensionTimes = worldTimes.get(dimensions[i]);
+
+            if (dimensionTimes != null)
+            {
+                dimensionMean[i] = getMeanMillis(dimensionTimes);
+                dimensionMax[i] = getMaxMillis(dimensionTimes);
+            }
+        }
+
+        this.stats = new ServerTickStats(getMeanMillis(times), getMaxMillis(times), dimensions, dimensionMean, dimensionMax);
+    }
+
+    /**
+     * @return the mean of the recorded tick times in milliseconds. The unused (zero) slots are skipped,
+     * so that the values are right also during the first 100 ticks.
+     */
+    private static double getMeanMillis(long[] times)
+    {
+        long total = 0L;
+        int count = 0;
+
+        for (long time : times)
+        {
+            if (time > 0L)
+            {
+                total += time;
+                count++;
+            }
+        }
+
+        return count > 0 ? total / (count * 1000000d) : 0d;
+    }
+
+    private static double getMaxMillis(long[] times)
+    {
+        long max = 0L;
+
+        for (long time : times)
+        {
+            max = Math.max(max, time);
+        }
+
+        return max / 1000000d;
+    }
+}
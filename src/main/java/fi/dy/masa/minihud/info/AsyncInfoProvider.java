@@ -0,0 +1,204 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.text.TextFormatting;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * A provider whose lines are computed on a background worker thread, so that slow
+ * lookups (like the ones going through the integrated server) never stall the client thread.
+ * On the client thread the needed inputs are captured into an immutable snapshot,
+ * which is then handed off to the worker. The worker publishes the resulting lines
+ * through a volatile reference, and they get picked up on the next line update.
+ * If the latest result was computed from a different snapshot than the current one,
+ * then the lines are marked as stale until the new result arrives.
+ *
+ * @param <S> the snapshot type. It must be immutable and implement equals().
+ */
+public abstract class AsyncInfoProvider<S> implements InfoProvider
+{
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new WorkerThreadFactory());
+    private static final AtomicInteger RESULT_COUNT = new AtomicInteger();
+    private static final String STALE_MARKER = TextFormatting.GRAY.toString() + " (stale)";
+    /** How long the worker waits for a task to run on the server thread. The server doesn't run them while paused. */
+    private static final long SERVER_TASK_TIMEOUT = 500;
+
+    private final int inputs;
+    private final long resubmitInterval;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Result<S> result;
+    private S lastSubmitted;
+    private long lastSubmitTime;
+
+    /**
+     * @param inputs the InfoContext.INPUT_* bits that the snapshot depends on
+     * @param resubmitInterval how often (in milliseconds) to recompute the lines
+     * even if the snapshot doesn't change, for values that also depend on time
+     */
+    protected AsyncInfoProvider(int inputs, long resubmitInterval)
+    {
+        this.inputs = inputs;
+        this.resubmitInterval = resubmitInterval;
+    }
+
+    /**
+     * @return the number of results the worker has published so far.
+     * A change in this is tracked as the InfoContext.INPUT_ASYNC_RESULT input.
+     */
+    public static int getResultCount()
+    {
+        return RESULT_COUNT.get();
+    }
+
+    @Override
+    public int getInputs()
+    {
+        return this.inputs | InfoContext.INPUT_ASYNC_RESULT;
+    }
+
+    @Override
+    public Cost getCost()
+    {
+        return Cost.EXPENSIVE;
+    }
+
+    @Override
+    public final void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+    {
+        S snapshot = this.createSnapshot(context, enabledTypes);
+
+        if (snapshot == null)
+        {
+            return;
+        }
+
+        long currentTime = System.currentTimeMillis();
+
+        if (this.pending.get() == false &&
+            (snapshot.equals(this.lastSubmitted) == false || currentTime - this.lastSubmitTime >= this.resubmitInterval))
+        {
+            this.submit(snapshot, currentTime);
+        }
+
+        Result<S> result = this.result;
+
+        if (result != null)
+        {
+            boolean stale = result.snapshot.equals(snapshot) == false;
+
+            for (String line : result.lines)
+            {
+                if (stale)
+                {
+                    lines.addLine(lines.newLine().append(line).append(STALE_MARKER));
+                }
+                else
+                {
+                    lines.addLine(line);
+                }
+            }
+        }
+    }
+
+    private void submit(final S snapshot, long currentTime)
+    {
+        this.pending.set(true);
+        this.lastSubmitted = snapshot;
+        this.lastSubmitTime = currentTime;
+
+        EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    List<String> lines = new ArrayList<String>();
+                    AsyncInfoProvider.this.computeLines(snapshot, lines);
+                    AsyncInfoProvider.this.result = new Result<S>(snapshot, lines.toArray(new String[lines.size()]));
+                    RESULT_COUNT.incrementAndGet();
+                }
+                catch (TimeoutException e)
+                {
+                    // The server is busy or paused, keep the previous result until the next resubmit
+                }
+                catch (Exception e)
+                {
+                    MiniHud.logger.warn("Failed to compute the info line(s) of '{}'", AsyncInfoProvider.this.getClass().getSimpleName(), e);
+                }
+                finally
+                {
+                    AsyncInfoProvider.this.pending.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Captures the inputs needed for computing the lines. Called on the client thread.
+     * @return the snapshot, or null if there is nothing to show currently
+     */
+    protected abstract S createSnapshot(InfoContext context, BitSet enabledTypes);
+
+    /**
+     * Computes the lines for the given snapshot. Called on the worker thread,
+     * so this must not access the client world, and the server world
+     * can only be accessed via callOnServerThread().
+     */
+    protected abstract void computeLines(S snapshot, List<String> lines) throws Exception;
+
+    /**
+     * @return the integrated server, if running single player, otherwise null
+     */
+    protected static MinecraftServer getIntegratedServer()
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        return server != null && server.isSinglePlayer() ? server : null;
+    }
+
+    /**
+     * Runs the task on the server thread, and waits for the result.
+     * Only call this from the worker thread!
+     * @throws TimeoutException if the server doesn't run the task in time, for example because it's paused
+     */
+    protected static <V> V callOnServerThread(MinecraftServer server, Callable<V> task) throws Exception
+    {
+        return server.callFromMainThread(task).get(SERVER_TASK_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Result<S>
+    {
+        private final S snapshot;
+        private final String[] lines;
+
+        private Result(S snapshot, String[] lines)
+        {
+            this.snapshot = snapshot;
+            this.lines = lines;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory
+    {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "MiniHud info worker");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.minecraft.block.Block;
+import net.minecraft.block.properties.IProperty;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.text.TextFormatting;
+import fi.dy.masa.minihud.metrics.Gauge;
+import fi.dy.masa.minihud.metrics.Metrics;
+
+/**
+ * The formatted block properties lines per IBlockState.
+ * The states are singletons, and the lines only depend on the state,
+ * so looking at the same kinds of blocks again only costs a cache lookup.
+ * The cache uses weak keys, which also means that the keys are compared by identity.
+ */
+public class BlockPropertiesCache
+{
+    private static final int MAX_SIZE = 1024;
+
+    private static final Cache<IBlockState, String[]> CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_SIZE)
+            .recordStats()
+            .build();
+
+    static
+    {
+        Metrics.gauge("block_properties_cache.hits", new Gauge()
+        {
+            @Override
+            public long getValue()
+            {
+                return getHitCount();
+            }
+        });
+
+        Metrics.gauge("block_properties_cache.misses", new Gauge()
+        {
+            @Override
+            public long getValue()
+            {
+                return getMissCount();
+            }
+        });
+
+        Metrics.gauge("block_properties_cache.size", new Gauge()
+        {
+            @Override
+            public long getValue()
+            {
+                return getSize();
+            }
+        });
+    }
+
+    /**
+     * @return the block's registry name line, followed by one line for each property. Don't modify!
+     */
+    public static String[] getLines(IBlockState state)
+    {
+        String[] lines = CACHE.getIfPresent(state);
+
+        if (lines == null)
+        {
+            lines = createLines(state);
+            CACHE.put(state, lines);
+        }
+
+        return lines;
+    }
+
+    public static long getHitCount()
+    {
+        return CACHE.stats().hitCount();
+    }
+
+    public static long getMissCount()
+    {
+        return CACHE.stats().missCount();
+    }
+
+    public static long getSize()
+    {
+        return CACHE.size();
+    }
+
+    public static void clear()
+    {
+        CACHE.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> String[] createLines(IBlockState state)
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add(String.valueOf(Block.REGISTRY.getNameForObject(state.getBlock())));
+
+        for (Entry <IProperty<?>, Comparable<?>> entry : state.getProperties().entrySet())
+        {
+            IProperty<T> property = (IProperty<T>) entry.getKey();
+            T value = (T) entry.getValue();
+            StringBuilder str = new StringBuilder(32).append(property.getName()).append(": ");
+
+            if (Boolean.TRUE.equals(value))
+            {
+                str.append(TextFormatting.GREEN.toString());
+            }
+            else if (Boolean.FALSE.equals(value))
+            {
+                str.append(TextFormatting.RED.toString());
+            }
+            else if (Integer.class.equals(property.getValueClass()))
+            {
+                str.append(TextFormatting.AQUA.toString());
+            }
+
+            lines.add(str.append(property.getName(value)).toString());
+        }
+
+        return lines.toArray(new String[lines.size()]);
+    }
+}
@@ -0,0 +1,419 @@
+package fi.dy.masa.minihud.info;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import fi.dy.masa.minihud.config.ConfigSnapshot;
+
+/**
+ * The commonly needed values for the info lines, resolved once per info line update.
+ * The same instance is re-used for every update.
+ * The context also tracks on which update each of the INPUT_* values last changed,
+ * so that the info lines that only depend on unchanged inputs can be re-used.
+ */
+public class InfoContext
+{
+    /** Changes on every update */
+    public static final int INPUT_ALWAYS        = 0x0001;
+    public static final int INPUT_POSITION      = 0x0002;
+    public static final int INPUT_BLOCK_POS     = 0x0004;
+    /** The chunk position, or the loaded state of the chunk */
+    public static final int INPUT_CHUNK         = 0x0008;
+    public static final int INPUT_DIMENSION     = 0x0010;
+    public static final int INPUT_ROTATION      = 0x0020;
+    public static final int INPUT_FACING        = 0x0040;
+    /** The movement since the last tick */
+    public static final int INPUT_MOTION        = 0x0080;
+    public static final int INPUT_WORLD_TIME    = 0x0100;
+    /** The looked-at block position and state, or the looked-at entity */
+    public static final int INPUT_TARGET        = 0x0200;
+    /** A background worker has published new lines, see AsyncInfoProvider */
+    public static final int INPUT_ASYNC_RESULT  = 0x0400;
+    private static final int INPUT_COUNT = 11;
+
+    private final long[] changedOnUpdate = new long[INPUT_COUNT];
+    private long updateIndex;
+
+    private final BlockPos.MutableBlockPos blockPos = new BlockPos.MutableBlockPos();
+    private Minecraft mc;
+    private ConfigSnapshot config;
+    private Entity entity;
+    private World world;
+    private double posX;
+    private double posY;
+    private double posZ;
+    private int chunkX;
+    private int chunkY;
+    private int chunkZ;
+    private boolean chunkLoaded;
+    private Chunk chunk;
+    private Biome biome;
+    private boolean biomeResolved;
+    private RayTraceResult trace;
+    private IBlockState lookedAtState;
+    private boolean lookedAtStateResolved;
+
+    // The previous values, for the change tracking
+    private final BlockPos.MutableBlockPos lastBlockPos = new BlockPos.MutableBlockPos();
+    private final BlockPos.MutableBlockPos lastLookedAtPos = new BlockPos.MutableBlockPos();
+    private World lastWorld;
+    private int lastDimension;
+    private Chunk lastChunk;
+    private float lastYaw;
+    private float lastPitch;
+    private EnumFacing lastFacing;
+    private double lastMotionX;
+    private double lastMotionY;
+    private double lastMotionZ;
+    private long lastWorldTime;
+    private RayTraceResult.Type lastTraceType;
+    private Entity lastLookedAtEntity;
+    private IBlockState lastLookedAtState;
+    private double lastPosX;
+    private double lastPosY;
+    private double lastPosZ;
+    private int lastAsyncResultCount;
+
+    /**
+     * @param inputs the combined INPUT_* bits of the providers that are going to be called,
+     * so that the inputs that nothing uses don't need to be looked up
+     */
+    public void update(Minecraft mc, ConfigSnapshot config, int inputs)
+    {
+        final long update = ++this.updateIndex;
+        this.mc = mc;
+        this.config = config;
+        this.entity = mc.getRenderViewEntity();
+        this.world = mc.world;
+        this.posX = this.entity.posX;
+        this.posY = this.entity.getEntityBoundingBox().minY;
+        this.posZ = this.entity.posZ;
+
+        this.setChanged(INPUT_ALWAYS, update);
+
+        if (this.posX != this.lastPosX || this.posY != this.lastPosY || this.posZ != this.lastPosZ)
+        {
+            this.lastPosX = this.posX;
+            this.lastPosY = this.posY;
+            this.lastPosZ = this.posZ;
+            this.setChanged(INPUT_POSITION, update);
+        }
+
+        this.blockPos.setPos(MathHelper.floor(this.posX), MathHelper.floor(this.posY), MathHelper.floor(this.posZ));
+        this.chunkX = this.blockPos.getX() >> 4;
+        this.chunkY = this.blockPos.getY() >> 4;
+        this.chunkZ = this.blockPos.getZ() >> 4;
+        this.chunkLoaded = this.world.isBlockLoaded(this.blockPos);
+        this.chunk = this.chunkLoaded ? this.world.getChunk(this.chunkX, this.chunkZ) : null;
+        this.biome = null;
+        this.biomeResolved = false;
+
+        if (this.blockPos.equals(this.lastBlockPos) == false)
+        {
+            this.lastBlockPos.setPos(this.blockPos);
+            this.setChanged(INPUT_BLOCK_POS, update);
+        }
+
+        if (this.chunk != this.lastChunk)
+        {
+            this.lastChunk = this.chunk;
+            this.setChanged(INPUT_CHUNK, update);
+        }
+
+        if (this.world != this.lastWorld || this.world.provider.getDimension() != this.lastDimension)
+        {
+            this.lastWorld = this.world;
+            this.lastDimension = this.world.provider.getDimension();
+            this.setChanged(INPUT_DIMENSION, update);
+        }
+
+        if (this.entity.rotationYaw != this.lastYaw || this.entity.rotationPitch != this.lastPitch)
+        {
+            this.lastYaw = this.entity.rotationYaw;
+            this.lastPitch = this.entity.rotationPitch;
+            this.setChanged(INPUT_ROTATION, update);
+        }
+
+        if (this.entity.getHorizontalFacing() != this.lastFacing)
+        {
+            this.lastFacing = this.entity.getHorizontalFacing();
+            this.setChanged(INPUT_FACING, update);
+        }
+
+        double mx = this.entity.posX - this.entity.lastTickPosX;
+        double my = this.entity.posY - this.entity.lastTickPosY;
+        double mz = this.entity.posZ - this.entity.lastTickPosZ;
+
+        if (mx != this.lastMotionX || my != this.lastMotionY || mz != this.lastMotionZ)
+        {
+            this.lastMotionX = mx;
+            this.lastMotionY = my;
+            this.lastMotionZ = mz;
+            this.setChanged(INPUT_MOTION, update);
+        }
+
+        if (this.world.getTotalWorldTime() != this.lastWorldTime)
+        {
+            this.lastWorldTime = this.world.getTotalWorldTime();
+            this.setChanged(INPUT_WORLD_TIME, update);
+        }
+
+        this.updateTarget(mc.objectMouseOver, (inputs & INPUT_TARGET) != 0, update);
+
+        if (AsyncInfoProvider.getResultCount() != this.lastAsyncResultCount)
+        {
+            this.lastAsyncResultCount = AsyncInfoProvider.getResultCount();
+            this.setChanged(INPUT_ASYNC_RESULT, update);
+        }
+    }
+
+    /**
+     * @param resolveState if the looked-at block state should be looked up right away, for the change tracking.
+     * Otherwise it only gets looked up if some provider asks for it.
+     */
+    private void updateTarget(RayTraceResult trace, boolean resolveState, long update)
+    {
+        this.trace = trace;
+        this.lookedAtState = null;
+        this.lookedAtStateResolved = false;
+
+        RayTraceResult.Type type = trace != null ? trace.typeOfHit : null;
+        BlockPos pos = this.getLookedAtBlockPos();
+        Entity entity = this.getLookedAtEntity();
+
+        if (resolveState)
+        {
+            this.resolveLookedAtState();
+        }
+
+        if (type != this.lastTraceType || entity != this.lastLookedAtEntity || this.lookedAtState != this.lastLookedAtState ||
+            (pos != null && pos.equals(this.lastLookedAtPos) == false))
+        {
+            this.lastTraceType = type;
+            this.lastLookedAtEntity = entity;
+            this.lastLookedAtState = this.lookedAtState;
+
+            if (pos != null)
+            {
+                this.lastLookedAtPos.setPos(pos);
+            }
+
+            this.setChanged(INPUT_TARGET, update);
+        }
+    }
+
+    private void setChanged(int input, long update)
+    {
+        this.changedOnUpdate[Integer.numberOfTrailingZeros(input)] = update;
+    }
+
+    /**
+     * @return the index of the current update. The first update has the index 1.
+     */
+    public long getUpdateIndex()
+    {
+        return this.updateIndex;
+    }
+
+    /**
+     * @param inputs the INPUT_* bits to check
+     * @return true if any of the given inputs has changed after the given update
+     */
+    public boolean hasChangedSince(int inputs, long updateIndex)
+    {
+        for (int i = 0; i < INPUT_COUNT; i++)
+        {
+            if ((inputs & (1 << i)) != 0 && this.changedOnUpdate[i] > updateIndex)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public Minecraft getMinecraft()
+    {
+        return this.mc;
+    }
+
+    /**
+     * @return the config values for this update
+     */
+    public ConfigSnapshot getConfig()
+    {
+        return this.config;
+    }
+
+    public Entity getEntity()
+    {
+        return this.entity;
+    }
+
+    public World getWorld()
+    {
+        return this.world;
+    }
+
+    public double getPosX()
+    {
+        return this.posX;
+    }
+
+    /**
+     * @return the y-coordinate of the bottom of the entity's bounding box
+     */
+    public double getPosY()
+    {
+        return this.posY;
+    }
+
+    public double getPosZ()
+    {
+        return this.posZ;
+    }
+
+    /**
+     * @return the block position of the entity. Don't modify or store the returned position!
+     */
+    public BlockPos getBlockPos()
+    {
+        return this.blockPos;
+    }
+
+    public int getChunkX()
+    {
+        return this.chunkX;
+    }
+
+    /**
+     * @return the y-coordinate of the chunk section
+     */
+    public int getChunkY()
+    {
+        return this.chunkY;
+    }
+
+    public int getChunkZ()
+    {
+        return this.chunkZ;
+    }
+
+    public int getRegionX()
+    {
+        return this.blockPos.getX() >> 9;
+    }
+
+    public int getRegionZ()
+    {
+        return this.blockPos.getZ() >> 9;
+    }
+
+    public boolean isChunkLoaded()
+    {
+        return this.chunkLoaded;
+    }
+
+    /**
+     * @return the chunk the entity is in, or null if it's not loaded
+     */
+    public Chunk getChunk()
+    {
+        return this.chunk;
+    }
+
+    /**
+     * @return true if the entity is within the world height limits and inside
+     * a loaded, non-empty chunk, so that light and biome values can be read from it
+     */
+    public boolean isChunkUsable()
+    {
+        // Prevent a crash when outside of world
+        return this.blockPos.getY() >= 0 && this.blockPos.getY() < 256 && this.chunk != null && this.chunk.isEmpty() == false;
+    }
+
+    /**
+     * @return the biome at the entity's position, or null if the chunk is not usable
+     */
+    public Biome getBiome()
+    {
+        if (this.biomeResolved == false)
+        {
+            this.biome = this.isChunkUsable() ? this.chunk.getBiome(this.blockPos, this.world.getBiomeProvider()) : null;
+            this.biomeResolved = true;
+        }
+
+        return this.biome;
+    }
+
+    /**
+     * @return the current ray trace result of the crosshair target, or null
+     */
+    public RayTraceResult getTrace()
+    {
+        return this.trace;
+    }
+
+    /**
+     * @return the position of the looked-at block, or null if not looking at a block
+     */
+    public BlockPos getLookedAtBlockPos()
+    {
+        if (this.trace != null && this.trace.typeOfHit == RayTraceResult.Type.BLOCK)
+        {
+            return this.trace.getBlockPos();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the (actual) state of the looked-at block, or null if not looking at a block
+     */
+    public IBlockState getLookedAtBlockState()
+    {
+        if (this.lookedAtStateResolved == false)
+        {
+            this.resolveLookedAtState();
+        }
+
+        return this.lookedAtState;
+    }
+
+    private void resolveLookedAtState()
+    {
+        BlockPos pos = this.getLookedAtBlockPos();
+        this.lookedAtStateResolved = true;
+
+        if (pos != null)
+        {
+            this.lookedAtState = this.world.getBlockState(pos);
+
+            if (this.world.getWorldType() != WorldType.DEBUG_ALL_BLOCK_STATES)
+            {
+                this.lookedAtState = this.lookedAtState.getActualState(this.world, pos);
+            }
+        }
+    }
+
+    /**
+     * @return the looked-at entity, or null if not looking at an entity
+     */
+    public Entity getLookedAtEntity()
+    {
+        if (this.trace != null && this.trace.typeOfHit == RayTraceResult.Type.ENTITY)
+        {
+            return this.trace.entityHit;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The info lines gathered on one game tick, in the order they should be rendered in.
+ * The frames are immutable, so the latest published frame can be drawn
+ * as is until the next one replaces it.
+ */
+public class InfoFrame
+{
+    public static final InfoFrame EMPTY = new InfoFrame(new String[0]);
+
+    private final String[] lines;
+
+    private InfoFrame(String[] lines)
+    {
+        this.lines = lines;
+    }
+
+    public static InfoFrame of(List<String> lines)
+    {
+        return lines.isEmpty() ? EMPTY : new InfoFrame(lines.toArray(new String[lines.size()]));
+    }
+
+    public int getLineCount()
+    {
+        return this.lines.length;
+    }
+
+    public String getLine(int index)
+    {
+        return this.lines[index];
+    }
+
+    /**
+     * @return true if this frame has the same lines (by identity) in the same order as the given list.
+     * The unchanged lines keep their String instances, so this is enough for detecting changes.
+     */
+    public boolean hasSameLines(List<String> lines)
+    {
+        if (lines.size() != this.lines.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.lines.length; i++)
+        {
+            if (this.lines[i] != lines.get(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "InfoFrame" + Arrays.toString(this.lines);
+    }
+}
@@ -0,0 +1,19 @@
+package fi.dy.masa.minihud.info;
+
+import fi.dy.masa.minihud.util.LineBuilder;
+
+/**
+ * The destination for the lines built by an InfoProvider
+ */
+public interface InfoLines
+{
+    /**
+     * @return a cleared builder for building the next line.
+     * The builder is shared, so the line must be added before building the next one.
+     */
+    LineBuilder newLine();
+
+    void addLine(LineBuilder builder);
+
+    void addLine(String text);
+}
@@ -0,0 +1,39 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.BitSet;
+
+/**
+ * Builds the info line(s) of one or more info types.
+ * A provider that is registered for multiple info types adds one combined
+ * line for all the enabled types of that group, and it only gets called once per update.
+ */
+public interface InfoProvider
+{
+    /**
+     * How expensive it is to build the lines of the provider,
+     * compared to the simple position and rotation based lines.
+     */
+    public enum Cost
+    {
+        /** Only reads values that are already available */
+        CHEAP,
+        /** Does some lookups or iteration, for example in the world or the chunk */
+        MODERATE,
+        /** Builds large strings, or accesses the integrated server */
+        EXPENSIVE;
+    }
+
+    /**
+     * @return the InfoContext.INPUT_* bits of the values that the lines depend on.
+     * The lines only get rebuilt when one of these inputs has changed.
+     */
+    int getInputs();
+
+    Cost getCost();
+
+    /**
+     * Adds the lines for the enabled info types of this provider.
+     * @param enabledTypes the currently enabled info types. Don't modify!
+     */
+    void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines);
+}
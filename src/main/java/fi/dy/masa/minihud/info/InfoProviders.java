@@ -0,0 +1,1259 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.chunk.RenderChunk;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityList;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.text.TextFormatting;
+import net.minecraft.world.DifficultyInstance;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import fi.dy.masa.minihud.config.Configs;
+import fi.dy.masa.minihud.event.FramePhaseTracker;
+import fi.dy.masa.minihud.event.HudTextRenderer;
+import fi.dy.masa.minihud.event.RenderEventHandler;
+import fi.dy.masa.minihud.info.InfoProvider.Cost;
+import fi.dy.masa.minihud.metrics.FrameTimes;
+import fi.dy.masa.minihud.metrics.JvmSampler;
+import fi.dy.masa.minihud.metrics.Metrics;
+import fi.dy.masa.minihud.metrics.Profiler;
+import fi.dy.masa.minihud.metrics.RollingTimes;
+import fi.dy.masa.minihud.metrics.ServerTickStats;
+import fi.dy.masa.minihud.metrics.ThreadCpuSampler;
+import fi.dy.masa.minihud.util.Accessors;
+import fi.dy.masa.minihud.util.InitTimings;
+import fi.dy.masa.minihud.util.LineBuilder;
+
+/**
+ * The built-in info types
+ */
+public class InfoProviders
+{
+    private static boolean registered;
+
+    public static void registerDefaults()
+    {
+        if (registered)
+        {
+            return;
+        }
+
+        register(new ProviderFps(),                 RenderEventHandler.MASK_FPS);
+        register(new ProviderFrameTimes(),          RenderEventHandler.MASK_FPS_LOW_1, RenderEventHandler.MASK_FPS_LOW_01, RenderEventHandler.MASK_FRAME_TIME_MAX);
+        register(new ProviderFramePhases(),         RenderEventHandler.MASK_FRAME_PHASES);
+        register(new ProviderServerTps(),           RenderEventHandler.MASK_SERVER_MSPT, RenderEventHandler.MASK_SERVER_TPS);
+        register(new ProviderServerDimensionTps(),  RenderEventHandler.MASK_SERVER_DIMENSION_TPS);
+        register(new ProviderHeapMemory(),          RenderEventHandler.MASK_HEAP_USED, RenderEventHandler.MASK_HEAP_COMMITTED, RenderEventHandler.MASK_HEAP_MAX);
+        register(new ProviderGarbageCollection(),   RenderEventHandler.MASK_GC_YOUNG_COUNT, RenderEventHandler.MASK_GC_OLD_COUNT, RenderEventHandler.MASK_GC_TIME);
+        register(new ProviderAllocationRate(),      RenderEventHandler.MASK_ALLOC_RATE_CLIENT, RenderEventHandler.MASK_ALLOC_RATE_SERVER);
+        register(new ProviderThreadCpu(),           RenderEventHandler.MASK_THREAD_CPU);
+        register(new ProviderTimeReal(),            RenderEventHandler.MASK_TIME_REAL);
+        register(new ProviderTimeTicks(),           RenderEventHandler.MASK_TIME_TICKS);
+        register(new ProviderTimeMinecraft(),       RenderEventHandler.MASK_TIME_MC);
+        register(new ProviderCoordinates(),         RenderEventHandler.MASK_COORDINATES, RenderEventHandler.MASK_DIMENSION);
+        register(new ProviderBlockPosition(),       RenderEventHandler.MASK_BLOCK, RenderEventHandler.MASK_CHUNK, RenderEventHandler.MASK_REGION_FILE);
+        register(new ProviderBlockInChunk(),        RenderEventHandler.MASK_BLOCK_IN_CHUNK);
+        register(new ProviderFacing(),              RenderEventHandler.MASK_FACING);
+        register(new ProviderLight(),               RenderEventHandler.MASK_LIGHT);
+        register(new ProviderRotation(),            RenderEventHandler.MASK_YAW, RenderEventHandler.MASK_PITCH, RenderEventHandler.MASK_SPEED);
+        register(new ProviderChunkSections(),       RenderEventHandler.MASK_CHUNK_SECTIONS);
+        register(new ProviderChunkSectionsLine(),   RenderEventHandler.MASK_CHUNK_SECTIONS_LINE);
+        register(new ProviderChunkUpdates(),        RenderEventHandler.MASK_CHUNK_UPDATES);
+        register(new ProviderParticleCount(),       RenderEventHandler.MASK_PARTICLE_COUNT);
+        register(new ProviderDifficulty(),          RenderEventHandler.MASK_DIFFICULTY);
+        register(new ProviderBiome(),               RenderEventHandler.MASK_BIOME);
+        register(new ProviderBiomeRegistryName(),   RenderEventHandler.MASK_BIOME_REGISTRY_NAME);
+        register(new ProviderEntities(),            RenderEventHandler.MASK_ENTITIES);
+        register(new ProviderSlimeChunk(),          RenderEventHandler.MASK_SLIME_CHUNK);
+        register(new ProviderLookingAtEntity(),     RenderEventHandler.MASK_LOOKING_AT_ENTITY);
+        register(new ProviderEntityRegistryName(),  RenderEventHandler.MASK_LOOKING_AT_ENTITY_REGNAME);
+        register(new ProviderLookingAtBlock(),      RenderEventHandler.MASK_LOOKING_AT_BLOCK, RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK);
+        register(new ProviderBlockProperties(),     RenderEventHandler.MASK_BLOCK_PROPERTIES);
+        register(new ProviderLineRebuilds(),        RenderEventHandler.MASK_LINE_REBUILDS);
+        register(new ProviderHudDrawBatches(),      RenderEventHandler.MASK_HUD_DRAW_BATCHES);
+        register(new ProviderInitTimings(),         RenderEventHandler.MASK_INIT_TIMINGS);
+        register(new ProviderMetrics(),             RenderEventHandler.MASK_METRICS);
+        register(new ProviderProfiler(),            RenderEventHandler.MASK_PROFILER);
+
+        registered = true;
+    }
+
+    private static void register(InfoProvider provider, long... masks)
+    {
+        int[] types = new int[masks.length];
+
+        for (int i = 0; i < masks.length; i++)
+        {
+            types[i] = InfoRegistry.getTypeForMask(masks[i]);
+        }
+
+        InfoRegistry.register(provider, types);
+    }
+
+    private static boolean isEnabled(BitSet enabledTypes, long mask)
+    {
+        return enabledTypes.get(InfoRegistry.getTypeForMask(mask));
+    }
+
+    private abstract static class ProviderBase implements InfoProvider
+    {
+        private final int inputs;
+        private final Cost cost;
+
+        protected ProviderBase(int inputs, Cost cost)
+        {
+            this.inputs = inputs;
+            this.cost = cost;
+        }
+
+        @Override
+        public int getInputs()
+        {
+            return this.inputs;
+        }
+
+        @Override
+        public Cost getCost()
+        {
+            return this.cost;
+        }
+    }
+
+    private static class ProviderFps extends ProviderBase
+    {
+        private ProviderFps()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(lines.newLine().append(RenderEventHandler.getInstance().getFps()).append(" fps"));
+        }
+    }
+
+    private static class ProviderFrameTimes extends ProviderBase
+    {
+        private ProviderFrameTimes()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            FrameTimes frameTimes = RenderEventHandler.getInstance().getFrameTimes();
+            LineBuilder str = lines.newLine();
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_FPS_LOW_1))
+            {
+                str.append(pre).append("1% low: ").append(frameTimes.getLowFps(0.01), 1).append(" fps");
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_FPS_LOW_01))
+            {
+                str.append(pre).append("0.1% low: ").append(frameTimes.getLowFps(0.001), 1).append(" fps");
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_FRAME_TIME_MAX))
+            {
+                str.append(pre).append("max frame: ").append(frameTimes.getMaxFrameNanos() / 1000000d, 2).append(" ms");
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderFramePhases extends ProviderBase
+    {
+        private ProviderFramePhases()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            FramePhaseTracker tracker = RenderEventHandler.getInstance().getFramePhaseTracker();
+            RollingTimes tick = tracker.getTickTimes();
+            RollingTimes world = tracker.getWorldTimes();
+            RollingTimes hud = tracker.getHudTimes();
+            LineBuilder str = lines.newLine();
+
+            str.append("tick / world / hud: ").append(tick.getAverageNanos() / 1000000d, 2);
+            str.append(" / ").append(world.getAverageNanos() / 1000000d, 2);
+            str.append(" / ").append(hud.getAverageNanos() / 1000000d, 2);
+            str.append(" ms (max ").append(tick.getMaxNanos() / 1000000d, 2);
+            str.append(" / ").append(world.getMaxNanos() / 1000000d, 2);
+            str.append(" / ").append(hud.getMaxNanos() / 1000000d, 2).append(")");
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderServerTps extends ProviderBase
+    {
+        private ProviderServerTps()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            ServerTickStats stats = RenderEventHandler.getInstance().getServerTickTracker().getStats();
+            LineBuilder str = lines.newLine().append("Server: ");
+
+            if (stats == null)
+            {
+                lines.addLine(str.append("n/a (no integrated server)"));
+                return;
+            }
+
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_SERVER_MSPT))
+            {
+                str.append("MSPT: ").append(stats.getMeanMspt(), 1).append(" (max ").append(stats.getMaxMspt(), 1).append(")");
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_SERVER_TPS))
+            {
+                str.append(pre).append("TPS: ").append(stats.getTps(), 1);
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderServerDimensionTps extends ProviderBase
+    {
+        private ProviderServerDimensionTps()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            ServerTickStats stats = RenderEventHandler.getInstance().getServerTickTracker().getStats();
+
+            if (stats == null)
+            {
+                lines.addLine("Server dimensions: n/a (no integrated server)");
+                return;
+            }
+
+            for (int i = 0; i < stats.getDimensionCount(); i++)
+            {
+                LineBuilder str = lines.newLine();
+                str.append("DIM ").append(stats.getDimension(i)).append(": MSPT: ").append(stats.getDimensionMeanMspt(i), 1);
+                str.append(" (max ").append(stats.getDimensionMaxMspt(i), 1).append("), TPS: ").append(stats.getDimensionTps(i), 1);
+                lines.addLine(str);
+            }
+        }
+    }
+
+    /**
+     * @return the JVM sampler, after updating it if the last sample is old enough
+     */
+    private static JvmSampler sampleJvm()
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        Thread serverThread = server != null && server.isSinglePlayer() ? Accessors.getServerThread(server) : null;
+        JvmSampler sampler = RenderEventHandler.getInstance().getJvmSampler();
+
+        sampler.sample(serverThread);
+
+        return sampler;
+    }
+
+    private static class ProviderHeapMemory extends ProviderBase
+    {
+        private ProviderHeapMemory()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            JvmSampler sampler = sampleJvm();
+            LineBuilder str = lines.newLine().append("Heap: ");
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_HEAP_USED))
+            {
+                str.append("used: ").append(sampler.getHeapUsed() >> 20).append(" MB");
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_HEAP_COMMITTED))
+            {
+                str.append(pre).append("committed: ").append(sampler.getHeapCommitted() >> 20).append(" MB");
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_HEAP_MAX))
+            {
+                str.append(pre).append("max: ");
+
+                if (sampler.getHeapMax() >= 0L)
+                {
+                    str.append(sampler.getHeapMax() >> 20).append(" MB");
+                }
+                else
+                {
+                    str.append("n/a");
+                }
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderGarbageCollection extends ProviderBase
+    {
+        private ProviderGarbageCollection()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            JvmSampler sampler = sampleJvm();
+            LineBuilder str = lines.newLine().append("GC: ");
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_GC_YOUNG_COUNT))
+            {
+                str.append("young: ").append(sampler.getYoungCollectionCount());
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_GC_OLD_COUNT))
+            {
+                str.append(pre).append("old: ").append(sampler.getOldCollectionCount());
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_GC_TIME))
+            {
+                str.append(pre).append("time (").append(JvmSampler.GC_WINDOW_MILLIS / 1000L).append(" s): ");
+                str.append(sampler.getCollectionTimeInWindow()).append(" ms");
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderAllocationRate extends ProviderBase
+    {
+        private ProviderAllocationRate()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            JvmSampler sampler = sampleJvm();
+            LineBuilder str = lines.newLine().append("Alloc: ");
+
+            if (sampler.isAllocationRateSupported() == false)
+            {
+                lines.addLine(str.append("n/a (not supported by the JVM)"));
+                return;
+            }
+
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_ALLOC_RATE_CLIENT))
+            {
+                appendAllocationRate(str.append("client: "), sampler.getClientAllocationRate());
+                pre = ", ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_ALLOC_RATE_SERVER))
+            {
+                appendAllocationRate(str.append(pre).append("server: "), sampler.getServerAllocationRate());
+            }
+
+            lines.addLine(str);
+        }
+
+        private static void appendAllocationRate(LineBuilder str, double bytesPerSecond)
+        {
+            if (bytesPerSecond >= 0d)
+            {
+                str.append(bytesPerSecond / (1024d * 1024d), 1).append(" MB/s");
+            }
+            else
+            {
+                str.append("n/a");
+            }
+        }
+    }
+
+    private static class ProviderThreadCpu extends ProviderBase
+    {
+        private ProviderThreadCpu()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            ThreadCpuSampler sampler = RenderEventHandler.getInstance().getThreadCpuSampler();
+            LineBuilder str = lines.newLine().append("CPU: ");
+
+            if (sampler.isSupported() == false)
+            {
+                lines.addLine(str.append("n/a (not supported by the JVM)"));
+                return;
+            }
+
+            sampler.sample();
+
+            str.append("client: ").append(sampler.getUsage(ThreadCpuSampler.GROUP_CLIENT), 0).append("%");
+            str.append(", server: ").append(sampler.getUsage(ThreadCpuSampler.GROUP_SERVER), 0).append("%");
+            str.append(", chunk builders: ").append(sampler.getUsage(ThreadCpuSampler.GROUP_CHUNK_BUILDERS), 0).append("%");
+            str.append(", MiniHud: ").append(sampler.getUsage(ThreadCpuSampler.GROUP_MINIHUD), 0).append("%");
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderTimeReal extends ProviderBase
+    {
+        private ProviderTimeReal()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(context.getConfig().dateFormatRealProgram.executeTime(lines.newLine(), System.currentTimeMillis()));
+        }
+    }
+
+    private static class ProviderTimeTicks extends ProviderBase
+    {
+        private ProviderTimeTicks()
+        {
+            super(InfoContext.INPUT_WORLD_TIME, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            long current = context.getWorld().getWorldTime();
+            long total = context.getWorld().getTotalWorldTime();
+            lines.addLine(lines.newLine().append("World time: ").appendPadded(current, 5).append(" - total: ").append(total));
+        }
+    }
+
+    private static class ProviderTimeMinecraft extends ProviderBase
+    {
+        private final double[] timeValues = new double[Configs.MINECRAFT_TIME_PLACEHOLDERS.length];
+
+        private ProviderTimeMinecraft()
+        {
+            super(InfoContext.INPUT_WORLD_TIME, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            long timeDay = (int) context.getWorld().getWorldTime();
+            // 1 tick = 3.6 seconds in MC (0.2777... seconds IRL)
+            this.timeValues[0] = (int) (timeDay / 24000) + 1;
+            this.timeValues[1] = (int) ((timeDay / 1000) + 6) % 24;
+            this.timeValues[2] = (int) (timeDay / 16.666666) % 60;
+            this.timeValues[3] = (int) (timeDay / 0.277777) % 60;
+
+            lines.addLine(context.getConfig().dateFormatMinecraftProgram.execute(lines.newLine(), this.timeValues));
+        }
+    }
+
+    private static class ProviderCoordinates extends ProviderBase
+    {
+        private final double[] coordinateValues = new double[3];
+
+        private ProviderCoordinates()
+        {
+            super(InfoContext.INPUT_POSITION | InfoContext.INPUT_DIMENSION, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            LineBuilder str = lines.newLine();
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_COORDINATES))
+            {
+                if (context.getConfig().coordinateFormatCustomized)
+                {
+                    this.coordinateValues[0] = context.getPosX();
+                    this.coordinateValues[1] = context.getPosY();
+                    this.coordinateValues[2] = context.getPosZ();
+                    context.getConfig().coordinateFormatProgram.execute(str, this.coordinateValues);
+                }
+                else
+                {
+                    str.append("XYZ: ").append(context.getPosX(), 2);
+                    str.append(" / ").append(context.getPosY(), 4);
+                    str.append(" / ").append(context.getPosZ(), 2);
+                }
+
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_DIMENSION))
+            {
+                str.append(pre).append("dim: ").append(context.getWorld().provider.getDimension());
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderBlockPosition extends ProviderBase
+    {
+        private ProviderBlockPosition()
+        {
+            super(InfoContext.INPUT_BLOCK_POS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            BlockPos pos = context.getBlockPos();
+            LineBuilder str = lines.newLine();
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_BLOCK))
+            {
+                str.append("Block: ").append(pos.getX()).append(", ").append(pos.getY()).append(", ").append(pos.getZ());
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_CHUNK))
+            {
+                str.append(pre).append("Sub-Chunk: ").append(context.getChunkX()).append(", ").append(context.getChunkY()).append(", ").append(context.getChunkZ());
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_REGION_FILE))
+            {
+                str.append(pre).append("Region: r.").append(context.getRegionX()).append('.').append(context.getRegionZ());
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderBlockInChunk extends ProviderBase
+    {
+        private ProviderBlockInChunk()
+        {
+            super(InfoContext.INPUT_BLOCK_POS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            BlockPos pos = context.getBlockPos();
+            LineBuilder str = lines.newLine();
+            str.append("Block: ").append(pos.getX() & 0xF).append(", ").append(pos.getY() & 0xF).append(", ").append(pos.getZ() & 0xF);
+            str.append(" in Sub-Chunk: ").append(context.getChunkX()).append(", ").append(context.getChunkY()).append(", ").append(context.getChunkZ());
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderFacing extends ProviderBase
+    {
+        private ProviderFacing()
+        {
+            super(InfoContext.INPUT_FACING, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            EnumFacing facing = context.getEntity().getHorizontalFacing();
+            String axis = "Invalid";
+
+            switch (facing)
+            {
+                case NORTH: axis = "Negative Z"; break;
+                case SOUTH: axis = "Positive Z"; break;
+                case WEST:  axis = "Negative X"; break;
+                case EAST:  axis = "Positive X"; break;
+                default:
+            }
+
+            lines.addLine(lines.newLine().append("Facing: ").append(facing).append(" (").append(axis).append(')'));
+        }
+    }
+
+    private static class ProviderLight extends ProviderBase
+    {
+        private ProviderLight()
+        {
+            // The light levels can change at any time
+            super(InfoContext.INPUT_ALWAYS, Cost.MODERATE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            if (context.isChunkUsable())
+            {
+                Chunk chunk = context.getChunk();
+                BlockPos pos = context.getBlockPos();
+                LineBuilder str = lines.newLine();
+                str.append("Light: ").append(chunk.getLightSubtracted(pos, 0));
+                str.append(" (block: ").append(chunk.getLightFor(EnumSkyBlock.BLOCK, pos));
+                str.append(", sky: ").append(chunk.getLightFor(EnumSkyBlock.SKY, pos)).append(')');
+                lines.addLine(str);
+            }
+        }
+    }
+
+    private static class ProviderRotation extends ProviderBase
+    {
+        private ProviderRotation()
+        {
+            super(InfoContext.INPUT_ROTATION | InfoContext.INPUT_MOTION, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            Entity entity = context.getEntity();
+            LineBuilder str = lines.newLine();
+            String pre = "";
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_YAW))
+            {
+                str.append(pre).append("yaw: ").append(MathHelper.wrapDegrees(entity.rotationYaw), 1);
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_PITCH))
+            {
+                str.append(pre).append("pitch: ").append(MathHelper.wrapDegrees(entity.rotationPitch), 1);
+                pre = " / ";
+            }
+
+            if (isEnabled(enabledTypes, RenderEventHandler.MASK_SPEED))
+            {
+                double dx = entity.posX - entity.lastTickPosX;
+                double dy = entity.posY - entity.lastTickPosY;
+                double dz = entity.posZ - entity.lastTickPosZ;
+                double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                str.append(pre).append("speed: ").append(dist * 20, 3).append(" m/s");
+            }
+
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderChunkSections extends ProviderBase
+    {
+        private ProviderChunkSections()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(lines.newLine().append("C: ").append(Accessors.getRenderedChunks(context.getMinecraft().renderGlobal)));
+        }
+    }
+
+    private static class ProviderChunkSectionsLine extends ProviderBase
+    {
+        private ProviderChunkSectionsLine()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.EXPENSIVE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(context.getMinecraft().renderGlobal.getDebugInfoRenders());
+        }
+    }
+
+    private static class ProviderChunkUpdates extends ProviderBase
+    {
+        private ProviderChunkUpdates()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(lines.newLine().append("Chunk updates: ").append(RenderChunk.renderChunksUpdated));
+        }
+    }
+
+    private static class ProviderParticleCount extends ProviderBase
+    {
+        private ProviderParticleCount()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.MODERATE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            lines.addLine(lines.newLine().append("P: ").append(context.getMinecraft().effectRenderer.getStatistics()));
+        }
+    }
+
+    /**
+     * Resolves the difficulty from the server player on the integrated server, when running single player
+     */
+    private static class ProviderDifficulty extends AsyncInfoProvider<DifficultySnapshot>
+    {
+        private ProviderDifficulty()
+        {
+            // The regional difficulty changes with the inhabited time of the chunk and the world time
+            super(InfoContext.INPUT_ALWAYS, 1000L);
+        }
+
+        @Override
+        protected DifficultySnapshot createSnapshot(InfoContext context, BitSet enabledTypes)
+        {
+            if (context.isChunkLoaded() == false)
+            {
+                return null;
+            }
+
+            Minecraft mc = context.getMinecraft();
+            World world = context.getWorld();
+            DifficultyInstance diff = world.getDifficultyForLocation(context.getBlockPos());
+            UUID playerId = mc.isIntegratedServerRunning() ? mc.player.getUniqueID() : null;
+
+            return new DifficultySnapshot(world.provider.getDimension(), context.getChunkX(), context.getChunkZ(), world.getWorldTime() / 24000L,
+                    playerId, diff.getAdditionalDifficulty(), diff.getClampedAdditionalDifficulty());
+        }
+
+        @Override
+        protected void computeLines(final DifficultySnapshot snapshot, List<String> lines) throws Exception
+        {
+            float additional = snapshot.clientAdditional;
+            float clamped = snapshot.clientClamped;
+            MinecraftServer server = getIntegratedServer();
+
+            if (server != null && snapshot.playerId != null)
+            {
+                float[] values = callOnServerThread(server, new Callable<float[]>()
+                {
+                    @Override
+                    public float[] call()
+                    {
+                        EntityPlayerMP player = server.getPlayerList().getPlayerByUUID(snapshot.playerId);
+
+                        if (player != null)
+                        {
+                            DifficultyInstance diff = player.world.getDifficultyForLocation(new BlockPos(player));
+                            return new float[] { diff.getAdditionalDifficulty(), diff.getClampedAdditionalDifficulty() };
+                        }
+
+                        return null;
+                    }
+                });
+
+                if (values != null)
+                {
+                    additional = values[0];
+                    clamped = values[1];
+                }
+            }
+
+            LineBuilder str = new LineBuilder(64);
+            str.append("Local Difficulty: ").append(additional, 2);
+            str.append(" // ").append(clamped, 2);
+            str.append(" (Day ").append(snapshot.day).append(')');
+            lines.add(str.toString());
+        }
+    }
+
+    private static class DifficultySnapshot
+    {
+        private final int dimension;
+        private final int chunkX;
+        private final int chunkZ;
+        private final long day;
+        private final UUID playerId;
+        // The client side values are only a fallback, and they change on every tick, so they are not part of the identity
+        private final float clientAdditional;
+        private final float clientClamped;
+
+        private DifficultySnapshot(int dimension, int chunkX, int chunkZ, long day, UUID playerId, float clientAdditional, float clientClamped)
+        {
+            this.dimension = dimension;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.day = day;
+            this.playerId = playerId;
+            this.clientAdditional = clientAdditional;
+            this.clientClamped = clientClamped;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.dimension, this.chunkX, this.chunkZ, this.day, this.playerId);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+
+            if (obj == null || this.getClass() != obj.getClass())
+            {
+                return false;
+            }
+
+            DifficultySnapshot other = (DifficultySnapshot) obj;
+            return this.dimension == other.dimension && this.chunkX == other.chunkX && this.chunkZ == other.chunkZ &&
+                   this.day == other.day && Objects.equals(this.playerId, other.playerId);
+        }
+    }
+
+    private static class ProviderBiome extends ProviderBase
+    {
+        private ProviderBiome()
+        {
+            // The biomes are per block column, not per chunk
+            super(InfoContext.INPUT_BLOCK_POS | InfoContext.INPUT_CHUNK, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            if (context.getBiome() != null)
+            {
+                lines.addLine(lines.newLine().append("Biome: ").append(context.getBiome().getBiomeName()));
+            }
+        }
+    }
+
+    private static class ProviderBiomeRegistryName extends ProviderBase
+    {
+        private ProviderBiomeRegistryName()
+        {
+            super(InfoContext.INPUT_BLOCK_POS | InfoContext.INPUT_CHUNK, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            if (context.getBiome() != null)
+            {
+                lines.addLine(lines.newLine().append("Biome reg name: ").append(context.getBiome().getRegistryName()));
+            }
+        }
+    }
+
+    private static class ProviderEntities extends ProviderBase
+    {
+        private ProviderEntities()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.EXPENSIVE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            String ent = context.getMinecraft().renderGlobal.getDebugInfoEntities();
+
+            int p = ent.indexOf(",");
+
+            if (p != -1)
+            {
+                ent = ent.substring(0, p);
+            }
+
+            lines.addLine(ent);
+        }
+    }
+
+    /**
+     * Reads the world seed on the integrated server, when running single player
+     */
+    private static class ProviderSlimeChunk extends AsyncInfoProvider<SlimeChunkSnapshot>
+    {
+        private final Random rand = new Random();
+
+        private ProviderSlimeChunk()
+        {
+            // Re-check periodically, in case the seed lookup timed out
+            super(InfoContext.INPUT_ALWAYS, 10000L);
+        }
+
+        @Override
+        protected SlimeChunkSnapshot createSnapshot(InfoContext context, BitSet enabledTypes)
+        {
+            RenderEventHandler handler = RenderEventHandler.getInstance();
+            boolean singlePlayer = context.getMinecraft().isIntegratedServerRunning();
+            boolean seedValid = singlePlayer == false && handler.isServerSeedValid();
+            long seed = seedValid ? handler.getServerSeed() : 0;
+
+            return new SlimeChunkSnapshot(context.getWorld().provider.getDimension(), context.getChunkX(), context.getChunkZ(), singlePlayer, seedValid, seed);
+        }
+
+        @Override
+        protected void computeLines(final SlimeChunkSnapshot snapshot, List<String> lines) throws Exception
+        {
+            boolean valid = snapshot.seedValid;
+            long seed = snapshot.seed;
+            MinecraftServer server = getIntegratedServer();
+
+            if (snapshot.singlePlayer && server != null)
+            {
+                Long serverSeed = callOnServerThread(server, new Callable<Long>()
+                {
+                    @Override
+                    public Long call()
+                    {
+                        World serverWorld = DimensionManager.getWorld(snapshot.dimension);
+                        return serverWorld != null ? serverWorld.getSeed() : null;
+                    }
+                });
+
+                valid = serverSeed != null;
+                seed = valid ? serverSeed.longValue() : 0;
+            }
+
+            LineBuilder str = new LineBuilder(64).append("Slime chunk: ");
+
+            if (valid)
+            {
+                if (this.canSlimeSpawnAt(snapshot.chunkX, snapshot.chunkZ, seed))
+                {
+                    str.append(TextFormatting.GREEN.toString()).append("YES");
+                }
+                else
+                {
+                    str.append(TextFormatting.RED.toString()).append("NO");
+                }
+
+                str.append(TextFormatting.RESET.toString()).append(TextFormatting.WHITE.toString());
+            }
+            else
+            {
+                str.append("<world seed not known>");
+            }
+
+            lines.add(str.toString());
+        }
+
+        private boolean canSlimeSpawnAt(int chunkX, int chunkZ, long worldSeed)
+        {
+            long slimeSeed = 987234911L;
+            long rngSeed = worldSeed +
+                           (long) (chunkX * chunkX *  4987142) + (long) (chunkX * 5947611) +
+                           (long) (chunkZ * chunkZ) * 4392871L + (long) (chunkZ * 389711) ^ slimeSeed;
+
+            this.rand.setSeed(rngSeed);
+
+            return this.rand.nextInt(10) == 0;
+        }
+    }
+
+    private static class SlimeChunkSnapshot
+    {
+        private final int dimension;
+        private final int chunkX;
+        private final int chunkZ;
+        private final boolean singlePlayer;
+        private final boolean seedValid;
+        private final long seed;
+
+        private SlimeChunkSnapshot(int dimension, int chunkX, int chunkZ, boolean singlePlayer, boolean seedValid, long seed)
+        {
+            this.dimension = dimension;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.singlePlayer = singlePlayer;
+            this.seedValid = seedValid;
+            this.seed = seed;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.dimension, this.chunkX, this.chunkZ, this.singlePlayer, this.seedValid, this.seed);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+
+            if (obj == null || this.getClass() != obj.getClass())
+            {
+                return false;
+            }
+
+            SlimeChunkSnapshot other = (SlimeChunkSnapshot) obj;
+            return this.dimension == other.dimension && this.chunkX == other.chunkX && this.chunkZ == other.chunkZ &&
+                   this.singlePlayer == other.singlePlayer && this.seedValid == other.seedValid && this.seed == other.seed;
+        }
+    }
+
+    private static class ProviderLookingAtEntity extends ProviderBase
+    {
+        private ProviderLookingAtEntity()
+        {
+            // The entity health can change at any time
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            Entity target = context.getLookedAtEntity();
+
+            if (target != null)
+            {
+                LineBuilder str = lines.newLine().append("Entity: ").append(target.getName());
+
+                if (target instanceof EntityLivingBase)
+                {
+                    EntityLivingBase living = (EntityLivingBase) target;
+                    str.append(" - HP: ").append(living.getHealth(), 1).append(" / ").append(living.getMaxHealth(), 1);
+                }
+
+                lines.addLine(str);
+            }
+        }
+    }
+
+    private static class ProviderEntityRegistryName extends ProviderBase
+    {
+        private ProviderEntityRegistryName()
+        {
+            super(InfoContext.INPUT_TARGET, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            if (context.getLookedAtEntity() != null)
+            {
+                ResourceLocation regName = EntityList.getKey(context.getLookedAtEntity());
+
+                if (regName != null)
+                {
+                    lines.addLine(lines.newLine().append("Entity reg name: ").append(regName));
+                }
+            }
+        }
+    }
+
+    private static class ProviderLookingAtBlock extends ProviderBase
+    {
+        private ProviderLookingAtBlock()
+        {
+            super(InfoContext.INPUT_TARGET, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            BlockPos lookPos = context.getLookedAtBlockPos();
+
+            if (lookPos != null)
+            {
+                LineBuilder str = lines.newLine();
+                String pre = "";
+
+                if (isEnabled(enabledTypes, RenderEventHandler.MASK_LOOKING_AT_BLOCK))
+                {
+                    str.append("Looking at block: ").append(lookPos.getX()).append(' ').append(lookPos.getY()).append(' ').append(lookPos.getZ());
+                    pre = " // ";
+                }
+
+                if (isEnabled(enabledTypes, RenderEventHandler.MASK_LOOKING_AT_BLOCK_CHUNK))
+                {
+                    str.append(pre).append("Block: ").append(lookPos.getX() & 0xF).append(' ').append(lookPos.getY() & 0xF).append(' ').append(lookPos.getZ() & 0xF);
+                    str.append(" within chunk section: ").append(lookPos.getX() >> 4).append(' ').append(lookPos.getY() >> 4).append(' ').append(lookPos.getZ() >> 4);
+                }
+
+                lines.addLine(str);
+            }
+        }
+    }
+
+    private static class ProviderBlockProperties extends ProviderBase
+    {
+        private ProviderBlockProperties()
+        {
+            super(InfoContext.INPUT_TARGET, Cost.MODERATE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            IBlockState state = context.getLookedAtBlockState();
+
+            if (state != null)
+            {
+                this.addBlockProperties(state, lines);
+            }
+        }
+
+        private void addBlockProperties(IBlockState state, InfoLines lines)
+        {
+            for (String line : BlockPropertiesCache.getLines(state))
+            {
+                lines.addLine(line);
+            }
+        }
+    }
+
+    private static class ProviderLineRebuilds extends ProviderBase
+    {
+        private ProviderLineRebuilds()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            RenderEventHandler handler = RenderEventHandler.getInstance();
+            LineBuilder str = lines.newLine();
+            str.append("Line rebuilds: ").append(handler.getLinesRebuiltPerSecond()).append(" / ");
+            str.append(handler.getLinesTotalPerSecond()).append(" lines per second, ");
+            str.append(handler.getLinesDeferredPerSecond()).append(" deferred");
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderHudDrawBatches extends ProviderBase
+    {
+        private ProviderHudDrawBatches()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            HudTextRenderer renderer = RenderEventHandler.getInstance().getTextRenderer();
+            LineBuilder str = lines.newLine();
+            str.append("HUD draw calls: ").append(renderer.getDrawCalls());
+            str.append(", background quads: ").append(renderer.getBackgroundQuads());
+            str.append(", text quads: ").append(renderer.getTextQuads());
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderInitTimings extends ProviderBase
+    {
+        private ProviderInitTimings()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.CHEAP);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            LineBuilder str = lines.newLine();
+            str.append("Init: ").append(InitTimings.getInitNanos() / 1000000d, 2).append(" ms, lookups: ");
+            str.append(InitTimings.getLookupCount()).append(" in ").append(InitTimings.getLookupNanos() / 1000000d, 2).append(" ms");
+            lines.addLine(str);
+        }
+    }
+
+    private static class ProviderMetrics extends ProviderBase
+    {
+        private ProviderMetrics()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.MODERATE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            for (String line : Metrics.getReport())
+            {
+                lines.addLine(line);
+            }
+        }
+    }
+
+    private static class ProviderProfiler extends ProviderBase
+    {
+        private final Profiler.Section updateLines = Profiler.section(Profiler.SECTION_UPDATE_LINES);
+        private final Profiler.Section renderText = Profiler.section(Profiler.SECTION_RENDER_TEXT);
+        private final Profiler.Section renderOverlays = Profiler.section(Profiler.SECTION_RENDER_OVERLAYS);
+        private final Profiler.Section pathBroadcast = Profiler.section(Profiler.SECTION_PATH_BROADCAST);
+
+        private ProviderProfiler()
+        {
+            super(InfoContext.INPUT_ALWAYS, Cost.MODERATE);
+        }
+
+        @Override
+        public void addLines(InfoContext context, BitSet enabledTypes, InfoLines lines)
+        {
+            LineBuilder str = lines.newLine();
+            str.append("MiniHud avg/p99 ms: lines ");
+            this.appendSection(str, this.updateLines).append(", text ");
+            this.appendSection(str, this.renderText).append(", overlays ");
+            this.appendSection(str, this.renderOverlays).append(", paths ");
+            this.appendSection(str, this.pathBroadcast);
+            lines.addLine(str);
+        }
+
+        private LineBuilder appendSection(LineBuilder str, Profiler.Section section)
+        {
+            str.append(section.getAverageNanos() / 1000000d, 3).append('/');
+            return str.append(section.getPercentileNanos(0.99) / 1000000d, 3);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package fi.dy.masa.minihud.info;
+
+import java.util.Arrays;
+
+/**
+ * The dispatch table from the info type ids to their InfoProviders.
+ * The per-type line position and refresh interval configs are in the ConfigSnapshot.
+ * The info type id of the built-in types is the bit index of their
+ * MASK_* value in RenderEventHandler, but the table grows as needed,
+ * so new types can also be registered past the first 64.
+ */
+public class InfoRegistry
+{
+    private static InfoProvider[] providers = new InfoProvider[64];
+    private static int[] groups = new int[64];
+    private static int groupCount;
+    private static int typeCount;
+
+    /**
+     * Registers the provider for the given info types. If multiple types are given,
+     * then they form a group that shares a single line, built by one call to the provider.
+     */
+    public static void register(InfoProvider provider, int... types)
+    {
+        for (int type : types)
+        {
+            if (type < 0)
+            {
+                throw new IllegalArgumentException("Invalid info type id: " + type);
+            }
+
+            if (isRegistered(type))
+            {
+                throw new IllegalStateException("The info type " + type + " has already been registered");
+            }
+        }
+
+        int group = groupCount++;
+
+        for (int type : types)
+        {
+            ensureCapacity(type + 1);
+            providers[type] = provider;
+            groups[type] = group;
+            typeCount = Math.max(typeCount, type + 1);
+        }
+    }
+
+    /**
+     * @return the info type id of the given single-bit MASK_* value
+     */
+    public static int getTypeForMask(long mask)
+    {
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * @return the number of info type ids in use, ie. the highest registered id + 1
+     */
+    public static int getTypeCount()
+    {
+        return typeCount;
+    }
+
+    /**
+     * @return true if the given info type has a provider that adds info lines
+     * (as opposed to for example the overlay renderers)
+     */
+    public static boolean isRegistered(int type)
+    {
+        return type >= 0 && type < providers.length && providers[type] != null;
+    }
+
+    /**
+     * @return the provider of the given info type, or null if the type is not registered
+     */
+    public static InfoProvider getProvider(int type)
+    {
+        return type < providers.length ? providers[type] : null;
+    }
+
+    /**
+     * @return the index of the group the given registered info type belongs to
+     */
+    public static int getGroup(int type)
+    {
+        return groups[type];
+    }
+
+    public static int getGroupCount()
+    {
+        return groupCount;
+    }
+
+    private static void ensureCapacity(int capacity)
+    {
+        if (capacity > providers.length)
+        {
+            int newLength = Math.max(capacity, providers.length * 2);
+
+            providers = Arrays.copyOf(providers, newLength);
+            groups = Arrays.copyOf(groups, newLength);
+        }
+    }
+}
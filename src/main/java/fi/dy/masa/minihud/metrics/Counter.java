@@ -0,0 +1,41 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Can be incremented from any thread without contention,
+ * and read from any other thread without locking.
+ */
+public class Counter
+{
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    public void increment()
+    {
+        this.count.increment();
+    }
+
+    public void add(long amount)
+    {
+        this.count.add(amount);
+    }
+
+    /**
+     * @return the total count so far. Not an atomic snapshot if there are concurrent updates.
+     */
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+}
@@ -0,0 +1,166 @@
+package fi.dy.masa.minihud.metrics;
+
+/**
+ * The durations of the most recent frames, in a ring buffer of primitive longs,
+ * plus a histogram with fixed 0.1 ms buckets of the same frames. The histogram is kept
+ * up to date incrementally as frames enter and leave the window, so the percentile lows
+ * can be read without sorting or copying anything, and recording a frame never allocates.
+ * Not thread safe, the frames are recorded and read on the client thread.
+ */
+public class FrameTimes
+{
+    /** The number of the most recent frames kept, enough for a meaningful 0.1% low */
+    public static final int WINDOW_SIZE = 2048;
+    private static final long BUCKET_NANOS = 100000L;
+    /** 0 - 100 ms in 0.1 ms steps, the last bucket holds all the longer frames */
+    private static final int BUCKET_COUNT = 1001;
+
+    private final long[] frames = new long[WINDOW_SIZE];
+    private final int[] buckets = new int[BUCKET_COUNT];
+    private int nextIndex;
+    private int frameCount;
+    private long totalNanos;
+    private long lastFrameStart = -1L;
+
+    /**
+     * Records the duration of the previous frame, ie. the time since the previous call.
+     * To be called at the start of every frame.
+     */
+    public void onFrameStart(long nanoTime)
+    {
+        if (this.lastFrameStart >= 0L)
+        {
+            this.record(nanoTime - this.lastFrameStart);
+        }
+
+        this.lastFrameStart = nanoTime;
+    }
+
+    /**
+     * Makes the next onFrameStart() call start a new frame without recording anything,
+     * for when the frames haven't been tracked for a while
+     */
+    public void skipFrame()
+    {
+        this.lastFrameStart = -1L;
+    }
+
+    public void record(long nanos)
+    {
+        if (this.frameCount == WINDOW_SIZE)
+        {
+            long old = this.frames[this.nextIndex];
+            this.buckets[getBucket(old)]--;
+            this.totalNanos -= old;
+        }
+        else
+        {
+            this.frameCount++;
+        }
+
+        this.frames[this.nextIndex] = nanos;
+        this.buckets[getBucket(nanos)]++;
+        this.totalNanos += nanos;
+        this.nextIndex = (this.nextIndex + 1) % WINDOW_SIZE;
+    }
+
+    public int getFrameCount()
+    {
+        return this.frameCount;
+    }
+
+    /**
+     * @return the average FPS over the frames in the whole window
+     */
+    public double getAverageFps()
+    {
+        return this.totalNanos > 0L ? this.frameCount * 1000000000d / this.totalNanos : 0d;
+    }
+
+    /**
+     * @return the average FPS over the most recent frames that fit within the given period
+     */
+    public double getAverageFps(long periodNanos)
+    {
+        long total = 0L;
+        int count = 0;
+
+        while (count < this.frameCount)
+        {
+            long frame = this.frames[(this.nextIndex - 1 - count + WINDOW_SIZE) % WINDOW_SIZE];
+
+            if (total + frame > periodNanos && count > 0)
+            {
+                break;
+            }
+
+            total += frame;
+            count++;
+        }
+
+        return total > 0L ? count * 1000000000d / total : 0d;
+    }
+
+    /**
+     * Returns the "low" FPS, ie. the FPS matching the frame time that the given fraction
+     * of the slowest frames are at or above. For example 0.01 gives the 1% low,
+     * which is the FPS of the 99th percentile frame time. The frame time resolution is 0.1 ms.
+     */
+    public double getLowFps(double fraction)
+    {
+        long nanos = this.getSlowFrameNanos(fraction);
+        return nanos > 0L ? 1000000000d / nanos : 0d;
+    }
+
+    /**
+     * @return the frame time that the given fraction of the slowest frames are at or above,
+     * rounded up to the 0.1 ms bucket size
+     */
+    public long getSlowFrameNanos(double fraction)
+    {
+        if (this.frameCount == 0)
+        {
+            return 0L;
+        }
+
+        int target = Math.max((int) Math.ceil(this.frameCount * fraction), 1);
+        int seen = this.buckets[BUCKET_COUNT - 1];
+
+        if (seen >= target)
+        {
+            return this.getMaxFrameNanos();
+        }
+
+        for (int i = BUCKET_COUNT - 2; i >= 0; i--)
+        {
+            seen += this.buckets[i];
+
+            if (seen >= target)
+            {
+                return (i + 1) * BUCKET_NANOS;
+            }
+        }
+
+        return BUCKET_NANOS;
+    }
+
+    /**
+     * @return the longest frame time within the window
+     */
+    public long getMaxFrameNanos()
+    {
+        long max = 0L;
+
+        for (int i = 0; i < this.frameCount; i++)
+        {
+            max = Math.max(max, this.frames[i]);
+        }
+
+        return max;
+    }
+
+    private static int getBucket(long nanos)
+    {
+        return (int) Math.min(Math.max(nanos, 0L) / BUCKET_NANOS, BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,10 @@
+package fi.dy.masa.minihud.metrics;
+
+/**
+ * A value that is sampled when the metrics are read, for example a cache size.
+ * The implementations must be safe to call from any thread.
+ */
+public interface Gauge
+{
+    long getValue();
+}
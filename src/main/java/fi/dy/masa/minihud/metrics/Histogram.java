@@ -0,0 +1,117 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed, power-of-two sized buckets in nanoseconds.
+ * The first bucket holds everything up to about 1 microsecond, and the last one everything from about 1 s up.
+ * Recording is lock-free and allocation free, so it can be done on the server thread
+ * while the render thread reads the percentiles. The percentiles are the upper bounds
+ * of the buckets they fall into, so they are accurate to within a factor of two.
+ */
+public class Histogram
+{
+    /** The upper bound of the first bucket is 2^MIN_SHIFT ns */
+    private static final int MIN_SHIFT = 10;
+    private static final int BUCKET_COUNT = 22;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+
+        this.buckets.incrementAndGet(getBucket(nanos));
+        this.count.increment();
+        this.total.add(nanos);
+
+        long oldMax = this.max.get();
+
+        while (nanos > oldMax && this.max.compareAndSet(oldMax, nanos) == false)
+        {
+            oldMax = this.max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    public long getMaxNanos()
+    {
+        return this.max.get();
+    }
+
+    public double getMeanNanos()
+    {
+        long count = this.count.sum();
+        return count > 0 ? (double) this.total.sum() / (double) count : 0d;
+    }
+
+    /**
+     * @param percentile the percentile in the range 0.0 - 1.0
+     * @return the upper bound of the bucket where the given percentile of the values falls into
+     */
+    public long getPercentileNanos(double percentile)
+    {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts[i] = this.buckets.get(i);
+            count += counts[i];
+        }
+
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT - 1; i++)
+        {
+            seen += counts[i];
+
+            if (seen >= target)
+            {
+                return Math.min(getBucketUpperBound(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    private static int getBucket(long nanos)
+    {
+        int bits = 64 - Long.numberOfLeadingZeros(nanos);
+        return Math.min(Math.max(bits - MIN_SHIFT, 0), BUCKET_COUNT - 1);
+    }
+
+    private static long getBucketUpperBound(int bucket)
+    {
+        return 1L << (bucket + MIN_SHIFT);
+    }
+}
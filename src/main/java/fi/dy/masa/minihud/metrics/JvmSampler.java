@@ -0,0 +1,277 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * Samples the heap usage, the garbage collector counts and times, and the allocation rates
+ * of the client and the integrated server threads from the platform MXBeans.
+ * The sampling is rate limited, so all the info lines using it in the same update share one sample,
+ * and the beans don't get queried more often than every MIN_SAMPLE_INTERVAL_MILLIS.
+ * The per-thread allocation counters need the com.sun.management.ThreadMXBean (HotSpot and OpenJ9),
+ * without it the allocation rates are not available.
+ */
+public class JvmSampler
+{
+    public static final long MIN_SAMPLE_INTERVAL_MILLIS = 250L;
+    /** The window that the collection time is summed over */
+    public static final long GC_WINDOW_MILLIS = 10000L;
+    private static final int GC_HISTORY_SIZE = (int) (GC_WINDOW_MILLIS / MIN_SAMPLE_INTERVAL_MILLIS) + 1;
+
+    private final GarbageCollectorMXBean[] collectors;
+    private final boolean[] youngCollectors;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long clientThreadId;
+    private long lastSampleTime = -1L;
+
+    private long heapUsed;
+    private long heapCommitted;
+    private long heapMax;
+    private long youngCount;
+    private long oldCount;
+    private long gcTimeInWindow;
+
+    // The cumulative collection times of the recent samples, as a ring buffer
+    private final long[] gcTimeHistory = new long[GC_HISTORY_SIZE];
+    private final long[] gcTimeHistoryTimes = new long[GC_HISTORY_SIZE];
+    private int gcHistoryIndex;
+    private int gcHistorySize;
+
+    private long clientAllocated = -1L;
+    private long serverAllocated = -1L;
+    private long serverThreadId = -1L;
+    private double clientAllocRate = -1d;
+    private double serverAllocRate = -1d;
+
+    /**
+     * Must be created on the client thread
+     */
+    public JvmSampler()
+    {
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        this.collectors = beans.toArray(new GarbageCollectorMXBean[beans.size()]);
+        this.youngCollectors = new boolean[this.collectors.length];
+
+        for (int i = 0; i < this.collectors.length; i++)
+        {
+            this.youngCollectors[i] = isYoungCollector(this.collectors[i].getName());
+        }
+
+        this.threadBean = getAllocationThreadBean();
+        this.clientThreadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * Takes a new sample, unless the previous one is less than MIN_SAMPLE_INTERVAL_MILLIS old
+     * @param serverThread the integrated server's thread, or null if there is no integrated server running
+     */
+    public void sample(Thread serverThread)
+    {
+        final long currentTime = System.nanoTime() / 1000000L;
+
+        if (this.lastSampleTime >= 0L && currentTime - this.lastSampleTime < MIN_SAMPLE_INTERVAL_MILLIS)
+        {
+            return;
+        }
+
+        final long elapsed = this.lastSampleTime >= 0L ? currentTime - this.lastSampleTime : 0L;
+        this.lastSampleTime = currentTime;
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        this.heapUsed = heap.getUsed();
+        this.heapCommitted = heap.getCommitted();
+        this.heapMax = heap.getMax();
+
+        this.sampleCollectors(currentTime);
+
+        if (this.threadBean != null)
+        {
+            this.sampleAllocations(serverThread, elapsed);
+        }
+    }
+
+    private void sampleCollectors(long currentTime)
+    {
+        long youngCount = 0L;
+        long oldCount = 0L;
+        long gcTime = 0L;
+
+        for (int i = 0; i < this.collectors.length; i++)
+        {
+            // Both return -1 if not supported by the collector
+            long count = Math.max(this.collectors[i].getCollectionCount(), 0L);
+            gcTime += Math.max(this.collectors[i].getCollectionTime(), 0L);
+
+            if (this.youngCollectors[i])
+            {
+                youngCount += count;
+            }
+            else
+            {
+                oldCount += count;
+            }
+        }
+
+        this.youngCount = youngCount;
+        this.oldCount = oldCount;
+
+        this.gcHistoryIndex = (this.gcHistoryIndex + 1) % GC_HISTORY_SIZE;
+        this.gcTimeHistory[this.gcHistoryIndex] = gcTime;
+        this.gcTimeHistoryTimes[this.gcHistoryIndex] = currentTime;
+        this.gcHistorySize = Math.min(this.gcHistorySize + 1, GC_HISTORY_SIZE);
+
+        // Find the oldest sample still inside the window
+        long baseline = gcTime;
+
+        for (int i = 1; i < this.gcHistorySize; i++)
+        {
+            int index = (this.gcHistoryIndex - i + GC_HISTORY_SIZE) % GC_HISTORY_SIZE;
+
+            if (currentTime - this.gcTimeHistoryTimes[index] > GC_WINDOW_MILLIS)
+            {
+                break;
+            }
+
+            baseline = this.gcTimeHistory[index];
+        }
+
+        this.gcTimeInWindow = gcTime - baseline;
+    }
+
+    private void sampleAllocations(Thread serverThread, long elapsed)
+    {
+        long client = this.threadBean.getThreadAllocatedBytes(this.clientThreadId);
+        this.clientAllocRate = getRate(this.clientAllocated, client, elapsed);
+        this.clientAllocated = client;
+
+        long serverThreadId = serverThread != null ? serverThread.getId() : -1L;
+
+        if (serverThreadId != this.serverThreadId)
+        {
+            // No server, or a new one, since the last sample
+            this.serverThreadId = serverThreadId;
+            this.serverAllocated = -1L;
+        }
+
+        long server = serverThreadId != -1L ? this.threadBean.getThreadAllocatedBytes(serverThreadId) : -1L;
+        this.serverAllocRate = getRate(this.serverAllocated, server, elapsed);
+        this.serverAllocated = server;
+    }
+
+    /**
+     * @return the allocation rate in bytes per second, or -1 if not available (yet)
+     */
+    private static double getRate(long previous, long current, long elapsedMillis)
+    {
+        if (previous < 0L || current < previous || elapsedMillis <= 0L)
+        {
+            return -1d;
+        }
+
+        return (current - previous) * 1000d / elapsedMillis;
+    }
+
+    public long getHeapUsed()
+    {
+        return this.heapUsed;
+    }
+
+    public long getHeapCommitted()
+    {
+        return this.heapCommitted;
+    }
+
+    /**
+     * @return the maximum heap size, or -1 if it's not defined
+     */
+    public long getHeapMax()
+    {
+        return this.heapMax;
+    }
+
+    public long getYoungCollectionCount()
+    {
+        return this.youngCount;
+    }
+
+    public long getOldCollectionCount()
+    {
+        return this.oldCount;
+    }
+
+    /**
+     * @return the total collection time in milliseconds over the last GC_WINDOW_MILLIS
+     * (or over the time the sampling has been running, if shorter).
+     * For the mostly concurrent collectors this is the collection time as reported by the JVM,
+     * which isn't the same as the time that the application threads were paused.
+     */
+    public long getCollectionTimeInWindow()
+    {
+        return this.gcTimeInWindow;
+    }
+
+    /**
+     * @return true if the per-thread allocation counters are available
+     */
+    public boolean isAllocationRateSupported()
+    {
+        return this.threadBean != null;
+    }
+
+    /**
+     * @return the client thread's allocation rate in bytes per second, or -1 if not available
+     */
+    public double getClientAllocationRate()
+    {
+        return this.clientAllocRate;
+    }
+
+    /**
+     * @return the integrated server thread's allocation rate in bytes per second, or -1 if not available
+     */
+    public double getServerAllocationRate()
+    {
+        return this.serverAllocRate;
+    }
+
+    /**
+     * Tells apart the young generation collectors of the HotSpot collector combinations,
+     * by their bean names. The rest are counted as old generation (or full) collections.
+     */
+    private static boolean isYoungCollector(String name)
+    {
+        return name.contains("Young") || name.equals("PS Scavenge") || name.equals("ParNew") || name.equals("Copy") || name.equals("scavenge");
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationThreadBean()
+    {
+        try
+        {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (bean instanceof com.sun.management.ThreadMXBean)
+            {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+
+                if (sunBean.isThreadAllocatedMemorySupported())
+                {
+                    if (sunBean.isThreadAllocatedMemoryEnabled() == false)
+                    {
+                        sunBean.setThreadAllocatedMemoryEnabled(true);
+                    }
+
+                    return sunBean;
+                }
+            }
+        }
+        catch (Throwable t)
+        {
+            MiniHud.logger.warn("The per-thread allocation counters are not available", t);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * The central registry of the named counters, gauges and histograms of all the MiniHud subsystems.
+ * The metrics are created on first request and then live for the rest of the session,
+ * so the subsystems should look them up once and keep the reference.
+ * Both the registration and the reading are lock-free, and the metrics are kept sorted by name.
+ */
+public class Metrics
+{
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentSkipListMap<String, Counter>();
+    private static final ConcurrentMap<String, Gauge> GAUGES = new ConcurrentSkipListMap<String, Gauge>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<String, Histogram>();
+
+    public static Counter counter(String name)
+    {
+        Counter counter = COUNTERS.get(name);
+
+        if (counter == null)
+        {
+            Counter newCounter = new Counter(name);
+            counter = COUNTERS.putIfAbsent(name, newCounter);
+
+            if (counter == null)
+            {
+                counter = newCounter;
+            }
+        }
+
+        return counter;
+    }
+
+    public static Histogram histogram(String name)
+    {
+        Histogram histogram = HISTOGRAMS.get(name);
+
+        if (histogram == null)
+        {
+            Histogram newHistogram = new Histogram(name);
+            histogram = HISTOGRAMS.putIfAbsent(name, newHistogram);
+
+            if (histogram == null)
+            {
+                histogram = newHistogram;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Registers the gauge with the given name, replacing any previous gauge with the same name
+     */
+    public static void gauge(String name, Gauge gauge)
+    {
+        GAUGES.put(name, gauge);
+    }
+
+    /**
+     * @return the current value of the named counter or gauge, or 0 if there is no such metric
+     */
+    public static long getValue(String name)
+    {
+        Counter counter = COUNTERS.get(name);
+
+        if (counter != null)
+        {
+            return counter.getCount();
+        }
+
+        Gauge gauge = GAUGES.get(name);
+
+        return gauge != null ? gauge.getValue() : 0L;
+    }
+
+    public static int getMetricCount()
+    {
+        return COUNTERS.size() + GAUGES.size() + HISTOGRAMS.size();
+    }
+
+    /**
+     * @return the current values of all the metrics, as one line per metric
+     */
+    public static List<String> getReport()
+    {
+        List<String> lines = new ArrayList<String>();
+
+        for (Counter counter : COUNTERS.values())
+        {
+            lines.add(counter.getName() + ": " + counter.getCount());
+        }
+
+        for (Map.Entry<String, Gauge> entry : GAUGES.entrySet())
+        {
+            lines.add(entry.getKey() + ": " + entry.getValue().getValue());
+        }
+
+        for (Histogram histogram : HISTOGRAMS.values())
+        {
+            lines.add(String.format("%s: n=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms", histogram.getName(),
+                    histogram.getCount(), histogram.getMeanNanos() / 1000000d,
+                    histogram.getPercentileNanos(0.5) / 1000000d, histogram.getPercentileNanos(0.99) / 1000000d,
+                    histogram.getMaxNanos() / 1000000d));
+        }
+
+        return lines;
+    }
+
+    public static void logReport()
+    {
+        MiniHud.logger.info("MiniHud metrics:");
+
+        for (String line : getReport())
+        {
+            MiniHud.logger.info("  {}", line);
+        }
+    }
+}
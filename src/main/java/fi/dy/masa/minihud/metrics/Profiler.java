@@ -0,0 +1,184 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * Measures how much time MiniHud itself spends in its different parts, per call.
+ * Each section keeps the durations of its last WINDOW_SIZE calls for the rolling averages and percentiles,
+ * and also records all the durations into a Histogram in the Metrics registry (as "profiler.<name>").
+ * The sections can be timed from any thread, and read from any other thread without locking.
+ */
+public class Profiler
+{
+    public static final String SECTION_UPDATE_LINES = "update_lines";
+    public static final String SECTION_RENDER_TEXT = "render_text";
+    public static final String SECTION_RENDER_OVERLAYS = "render_overlays";
+    public static final String SECTION_PATH_BROADCAST = "path_broadcast";
+    public static final String SECTION_PROVIDER_PREFIX = "provider.";
+
+    /** The number of the most recent durations used for the averages and percentiles */
+    public static final int WINDOW_SIZE = 256;
+
+    private static final ConcurrentMap<String, Section> SECTIONS = new ConcurrentSkipListMap<String, Section>();
+
+    public static Section section(String name)
+    {
+        Section section = SECTIONS.get(name);
+
+        if (section == null)
+        {
+            Section newSection = new Section(name);
+            section = SECTIONS.putIfAbsent(name, newSection);
+
+            if (section == null)
+            {
+                section = newSection;
+            }
+        }
+
+        return section;
+    }
+
+    /**
+     * @return one line per section, with the rolling average, median, 99th percentile and max durations
+     */
+    public static List<String> getReport()
+    {
+        List<String> lines = new ArrayList<String>();
+
+        for (Section section : SECTIONS.values())
+        {
+            long[] samples = section.getSamples();
+
+            lines.add(String.format("%s: avg %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms (last %d of %d calls)",
+                    section.getName(), getAverage(samples) / 1000000d, getPercentile(samples, 0.5) / 1000000d,
+                    getPercentile(samples, 0.99) / 1000000d, getPercentile(samples, 1.0) / 1000000d,
+                    samples.length, section.getCallCount()));
+        }
+
+        return lines;
+    }
+
+    public static void logReport()
+    {
+        MiniHud.logger.info("MiniHud profiler:");
+
+        for (String line : getReport())
+        {
+            MiniHud.logger.info("  {}", line);
+        }
+    }
+
+    private static double getAverage(long[] samples)
+    {
+        if (samples.length == 0)
+        {
+            return 0d;
+        }
+
+        long total = 0;
+
+        for (long sample : samples)
+        {
+            total += sample;
+        }
+
+        return (double) total / (double) samples.length;
+    }
+
+    /**
+     * @param samples the samples, sorted in ascending order
+     */
+    private static long getPercentile(long[] samples, double percentile)
+    {
+        if (samples.length == 0)
+        {
+            return 0L;
+        }
+
+        int index = (int) Math.ceil(samples.length * percentile) - 1;
+
+        return samples[Math.min(Math.max(index, 0), samples.length - 1)];
+    }
+
+    public static class Section
+    {
+        private final String name;
+        private final Histogram histogram;
+        private final AtomicLongArray window = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicLong callCount = new AtomicLong();
+
+        private Section(String name)
+        {
+            this.name = name;
+            this.histogram = Metrics.histogram("profiler." + name);
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        /**
+         * Records the duration since the given System.nanoTime() value
+         */
+        public void end(long startNanos)
+        {
+            this.record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos)
+        {
+            long index = this.callCount.getAndIncrement();
+            this.window.set((int) (index % WINDOW_SIZE), nanos);
+            this.histogram.record(nanos);
+        }
+
+        public long getCallCount()
+        {
+            return this.callCount.get();
+        }
+
+        /**
+         * @return the average duration of the recent calls, in nanoseconds
+         */
+        public double getAverageNanos()
+        {
+            return getAverage(this.getSamples());
+        }
+
+        /**
+         * @param percentile the percentile in the range 0.0 - 1.0
+         * @return the given percentile of the durations of the recent calls, in nanoseconds
+         */
+        public long getPercentileNanos(double percentile)
+        {
+            return getPercentile(this.getSamples(), percentile);
+        }
+
+        /**
+         * @return a sorted copy of the recent durations
+         */
+        private long[] getSamples()
+        {
+            int count = (int) Math.min(this.callCount.get(), WINDOW_SIZE);
+            long[] samples = new long[count];
+
+            for (int i = 0; i < count; i++)
+            {
+                samples[i] = this.window.get(i);
+            }
+
+            Arrays.sort(samples);
+
+            return samples;
+        }
+    }
+}
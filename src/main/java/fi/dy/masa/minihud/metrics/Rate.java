@@ -0,0 +1,44 @@
+package fi.dy.masa.minihud.metrics;
+
+/**
+ * Turns a Counter into a per-period rate, for example the increments during the last second.
+ * The Counter itself is never reset, so any number of Rates and other readers can share it.
+ * The Rate itself is only meant to be used from one thread.
+ */
+public class Rate
+{
+    private final Counter counter;
+    private final long periodMillis;
+    private long periodStart;
+    private long countAtPeriodStart;
+    private long rate;
+
+    public Rate(Counter counter, long periodMillis)
+    {
+        this.counter = counter;
+        this.periodMillis = periodMillis;
+        this.countAtPeriodStart = counter.getCount();
+    }
+
+    /**
+     * Completes the current period and starts a new one, if the period has elapsed
+     */
+    public void update(long currentTimeMillis)
+    {
+        if (currentTimeMillis >= this.periodStart + this.periodMillis)
+        {
+            long count = this.counter.getCount();
+            this.rate = count - this.countAtPeriodStart;
+            this.countAtPeriodStart = count;
+            this.periodStart = currentTimeMillis;
+        }
+    }
+
+    /**
+     * @return the number of increments during the last completed period
+     */
+    public long getRate()
+    {
+        return this.rate;
+    }
+}
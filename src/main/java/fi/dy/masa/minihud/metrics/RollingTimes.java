@@ -0,0 +1,64 @@
+package fi.dy.masa.minihud.metrics;
+
+/**
+ * The durations of the most recent samples of something, in a ring buffer of primitive longs,
+ * with a running total for the average. Recording never allocates.
+ * Not thread safe, meant to be recorded and read on the same thread.
+ */
+public class RollingTimes
+{
+    private final long[] samples;
+    private int nextIndex;
+    private int count;
+    private long totalNanos;
+
+    public RollingTimes(int windowSize)
+    {
+        this.samples = new long[windowSize];
+    }
+
+    public void record(long nanos)
+    {
+        if (this.count == this.samples.length)
+        {
+            this.totalNanos -= this.samples[this.nextIndex];
+        }
+        else
+        {
+            this.count++;
+        }
+
+        this.samples[this.nextIndex] = nanos;
+        this.totalNanos += nanos;
+        this.nextIndex = (this.nextIndex + 1) % this.samples.length;
+    }
+
+    public void clear()
+    {
+        this.nextIndex = 0;
+        this.count = 0;
+        this.totalNanos = 0L;
+    }
+
+    public int getCount()
+    {
+        return this.count;
+    }
+
+    public double getAverageNanos()
+    {
+        return this.count > 0 ? (double) this.totalNanos / (double) this.count : 0d;
+    }
+
+    public long getMaxNanos()
+    {
+        long max = 0L;
+
+        for (int i = 0; i < this.count; i++)
+        {
+            max = Math.max(max, this.samples[i]);
+        }
+
+        return max;
+    }
+}
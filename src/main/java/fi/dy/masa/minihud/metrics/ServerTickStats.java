@@ -0,0 +1,72 @@
+package fi.dy.masa.minihud.metrics;
+
+/**
+ * An immutable set of the integrated server's tick time statistics, over the last 100 ticks
+ * that the server (and Forge, per dimension) keeps the tick times of.
+ * The effective TPS is calculated the same way as by the Forge /forge tps command.
+ */
+public class ServerTickStats
+{
+    private final double meanMspt;
+    private final double maxMspt;
+    private final int[] dimensions;
+    private final double[] dimensionMeanMspt;
+    private final double[] dimensionMaxMspt;
+
+    public ServerTickStats(double meanMspt, double maxMspt, int[] dimensions, double[] dimensionMeanMspt, double[] dimensionMaxMspt)
+    {
+        this.meanMspt = meanMspt;
+        this.maxMspt = maxMspt;
+        this.dimensions = dimensions;
+        this.dimensionMeanMspt = dimensionMeanMspt;
+        this.dimensionMaxMspt = dimensionMaxMspt;
+    }
+
+    public double getMeanMspt()
+    {
+        return this.meanMspt;
+    }
+
+    public double getMaxMspt()
+    {
+        return this.maxMspt;
+    }
+
+    public double getTps()
+    {
+        return getTps(this.meanMspt);
+    }
+
+    public int getDimensionCount()
+    {
+        return this.dimensions.length;
+    }
+
+    public int getDimension(int index)
+    {
+        return this.dimensions[index];
+    }
+
+    public double getDimensionMeanMspt(int index)
+    {
+        return this.dimensionMeanMspt[index];
+    }
+
+    public double getDimensionMaxMspt(int index)
+    {
+        return this.dimensionMaxMspt[index];
+    }
+
+    public double getDimensionTps(int index)
+    {
+        return getTps(this.dimensionMeanMspt[index]);
+    }
+
+    /**
+     * @return the effective TPS for the given mean tick time, capped at the normal 20 TPS
+     */
+    public static double getTps(double meanMspt)
+    {
+        return meanMspt > 0d ? Math.min(1000d / meanMspt, 20d) : 20d;
+    }
+}
@@ -0,0 +1,261 @@
+package fi.dy.masa.minihud.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * Samples the CPU time of the client, integrated server, chunk builder and MiniHud worker threads
+ * via ThreadMXBean#getThreadCpuTime(), and computes the CPU usage of each thread group over a sliding window.
+ * The usage is given as a percentage of one core, so a group of several threads can go above 100%.
+ * The threads get assigned to the groups by their names, which are only looked up once per thread.
+ * The latest values are also exported as the "cpu.*" gauges of the Metrics registry.
+ */
+public class ThreadCpuSampler
+{
+    public static final long MIN_SAMPLE_INTERVAL_MILLIS = 500L;
+    public static final long WINDOW_MILLIS = 5000L;
+    private static final int HISTORY_SIZE = (int) (WINDOW_MILLIS / MIN_SAMPLE_INTERVAL_MILLIS) + 1;
+    private static final int NO_GROUP = -1;
+
+    public static final int GROUP_CLIENT = 0;
+    public static final int GROUP_SERVER = 1;
+    public static final int GROUP_CHUNK_BUILDERS = 2;
+    public static final int GROUP_MINIHUD = 3;
+    public static final int GROUP_COUNT = 4;
+
+    private static final String[] GROUP_NAMES = new String[] { "client", "server", "chunk_builders", "minihud_workers" };
+
+    private final ThreadMXBean threadBean;
+    /** The group of each seen thread by its ID, NO_GROUP for the threads that aren't tracked */
+    private final Map<Long, Integer> threadGroups = new HashMap<Long, Integer>();
+    /** The CPU time of each tracked thread as of the previous sample */
+    private final Map<Long, Long> threadCpuTimes = new HashMap<Long, Long>();
+    /** The CPU time used by each group since the sampling started, including the threads that have ended since */
+    private final long[] groupTotals = new long[GROUP_COUNT];
+    private long lastSampleTime = -1L;
+
+    // The group totals of the recent samples, as a ring buffer
+    private final long[][] history = new long[HISTORY_SIZE][GROUP_COUNT];
+    private final long[] historyTimes = new long[HISTORY_SIZE];
+    private int historyIndex;
+    private int historySize;
+
+    private volatile double[] usage = new double[GROUP_COUNT];
+
+    public ThreadCpuSampler()
+    {
+        this.threadBean = getCpuTimeThreadBean();
+
+        for (int i = 0; i < GROUP_COUNT; i++)
+        {
+            final int group = i;
+
+            Metrics.gauge("cpu." + GROUP_NAMES[i] + "_percent", new Gauge()
+            {
+                @Override
+                public long getValue()
+                {
+                    return Math.round(getUsage(group));
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if the JVM supports measuring the thread CPU times
+     */
+    public boolean isSupported()
+    {
+        return this.threadBean != null;
+    }
+
+    /**
+     * @return the CPU usage of the given group over the last WINDOW_MILLIS, as a percentage of one core
+     */
+    public double getUsage(int group)
+    {
+        return this.usage[group];
+    }
+
+    /**
+     * Takes a new sample, unless the previous one is less than MIN_SAMPLE_INTERVAL_MILLIS old.
+     * Must only be called from one thread.
+     */
+    public void sample()
+    {
+        final long currentTime = System.nanoTime() / 1000000L;
+
+        if (this.threadBean == null ||
+            (this.lastSampleTime >= 0L && currentTime - this.lastSampleTime < MIN_SAMPLE_INTERVAL_MILLIS))
+        {
+            return;
+        }
+
+        this.lastSampleTime = currentTime;
+        this.updateGroupTotals();
+
+        this.historyIndex = (this.historyIndex + 1) % HISTORY_SIZE;
+        System.arraycopy(this.groupTotals, 0, this.history[this.historyIndex], 0, GROUP_COUNT);
+        this.historyTimes[this.historyIndex] = currentTime;
+        this.historySize = Math.min(this.historySize + 1, HISTORY_SIZE);
+
+        // Find the oldest sample still inside the window
+        int baseline = this.historyIndex;
+
+        for (int i = 1; i < this.historySize; i++)
+        {
+            int index = (this.historyIndex - i + HISTORY_SIZE) % HISTORY_SIZE;
+
+            if (currentTime - this.historyTimes[index] > WINDOW_MILLIS)
+            {
+                break;
+            }
+
+            baseline = index;
+        }
+
+        final long elapsed = currentTime - this.historyTimes[baseline];
+        double[] usage = new double[GROUP_COUNT];
+
+        if (elapsed > 0L)
+        {
+            for (int group = 0; group < GROUP_COUNT; group++)
+            {
+                long cpuNanos = this.groupTotals[group] - this.history[baseline][group];
+                usage[group] = cpuNanos / (elapsed * 10000d);
+            }
+        }
+
+        this.usage = usage;
+    }
+
+    /**
+     * Adds the CPU time used by each tracked thread since the previous sample to its group's total.
+     * The threads seen for the first time only get their starting value recorded.
+     */
+    private void updateGroupTotals()
+    {
+        long[] ids = this.threadBean.getAllThreadIds();
+        Map<Long, Long> previousTimes = new HashMap<Long, Long>(this.threadCpuTimes);
+        this.threadCpuTimes.clear();
+
+        for (long id : ids)
+        {
+            int group = this.getGroup(id);
+
+            if (group == NO_GROUP)
+            {
+                continue;
+            }
+
+            // -1 if the thread has ended in the meantime
+            long cpuTime = this.threadBean.getThreadCpuTime(id);
+
+            if (cpuTime < 0L)
+            {
+                continue;
+            }
+
+            Long previous = previousTimes.get(id);
+
+            if (previous != null && cpuTime >= previous.longValue())
+            {
+                this.groupTotals[group] += cpuTime - previous.longValue();
+            }
+
+            this.threadCpuTimes.put(id, cpuTime);
+        }
+
+        // Forget the threads that have ended
+        Iterator<Long> iter = this.threadGroups.keySet().iterator();
+
+        while (iter.hasNext())
+        {
+            if (contains(ids, iter.next().longValue()) == false)
+            {
+                iter.remove();
+            }
+        }
+    }
+
+    private int getGroup(long id)
+    {
+        Integer group = this.threadGroups.get(id);
+
+        if (group == null)
+        {
+            ThreadInfo info = this.threadBean.getThreadInfo(id);
+            group = info != null ? getGroupForName(info.getThreadName()) : NO_GROUP;
+            this.threadGroups.put(id, group);
+        }
+
+        return group.intValue();
+    }
+
+    /**
+     * Assigns the threads to the groups by the names that vanilla and MiniHud give to them
+     */
+    private static int getGroupForName(String name)
+    {
+        if (name.equals("Client thread"))
+        {
+            return GROUP_CLIENT;
+        }
+        else if (name.equals("Server thread"))
+        {
+            return GROUP_SERVER;
+        }
+        else if (name.startsWith("Chunk Batcher"))
+        {
+            return GROUP_CHUNK_BUILDERS;
+        }
+        else if (name.startsWith("MiniHud"))
+        {
+            return GROUP_MINIHUD;
+        }
+
+        return NO_GROUP;
+    }
+
+    private static boolean contains(long[] values, long value)
+    {
+        for (long v : values)
+        {
+            if (v == value)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static ThreadMXBean getCpuTimeThreadBean()
+    {
+        try
+        {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (bean.isThreadCpuTimeSupported())
+            {
+                if (bean.isThreadCpuTimeEnabled() == false)
+                {
+                    bean.setThreadCpuTimeEnabled(true);
+                }
+
+                return bean;
+            }
+        }
+        catch (Throwable t)
+        {
+            MiniHud.logger.warn("The thread CPU times are not available", t);
+        }
+
+        return null;
+    }
+}
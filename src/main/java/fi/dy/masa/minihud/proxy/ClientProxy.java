@@ -6,6 +6,7 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.client.registry.ClientRegistry;
 
 import fi.dy.masa.minihud.Reference;
+import fi.dy.masa.minihud.config.ConfigFileWatcher;
 import fi.dy.masa.minihud.config.Configs;
 import fi.dy.masa.minihud.event.InputEventHandler;
 import fi.dy.masa.minihud.event.RenderEventHandler;
@@ -13,6 +14,7 @@ import fi.dy.masa.minihud.event.RenderEventHandler;
 public class ClientProxy extends CommonProxy
 {
     public static KeyBinding keyToggleMode;
+    public static KeyBinding keyDumpProfiler;
 
     @Override
     public void registerEventHandlers()
@@ -20,6 +22,11 @@ public class ClientProxy extends CommonProxy
         MinecraftForge.EVENT_BUS.register(new Configs());
         MinecraftForge.EVENT_BUS.register(new InputEventHandler());
         MinecraftForge.EVENT_BUS.register(RenderEventHandler.getInstance());
+
+        if (Configs.getSnapshot().watchConfigFile)
+        {
+            ConfigFileWatcher.start(Configs.configurationFile);
+        }
     }
 
     @Override
@@ -29,6 +36,11 @@ public class ClientProxy extends CommonProxy
                                        Reference.DEFAULT_KEYBIND_TOGGLE_MODE,
                                        Reference.KEYBIND_CATEGORY_MINIHUD);
 
+        keyDumpProfiler = new KeyBinding(Reference.KEYBIND_NAME_DUMP_PROFILER,
+                                         Reference.DEFAULT_KEYBIND_DUMP_PROFILER,
+                                         Reference.KEYBIND_CATEGORY_MINIHUD);
+
         ClientRegistry.registerKeyBinding(keyToggleMode);
+        ClientRegistry.registerKeyBinding(keyDumpProfiler);
     }
 }
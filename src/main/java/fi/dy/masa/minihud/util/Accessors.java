@@ -0,0 +1,269 @@
+package fi.dy.masa.minihud.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.RenderGlobal;
+import net.minecraft.client.renderer.debug.DebugRenderer;
+import net.minecraft.pathfinding.PathNavigate;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import fi.dy.masa.minihud.MiniHud;
+import fi.dy.masa.minihud.event.InputEventHandler;
+
+/**
+ * The accessors for the private vanilla fields and methods.
+ * Each group of MethodHandles lives in its own holder class, so they only get looked up
+ * on the first use of that group (and never, if the feature isn't used), and after that they
+ * are static final constants that the JIT can inline, without the boxing of Field.get()/set().
+ * The lookup times are recorded in InitTimings.
+ */
+public class Accessors
+{
+    private static class MinecraftFields
+    {
+        private static final MethodHandle SET_ACTION_KEY_F3 = findSetter(Minecraft.class, "field_184129_aV", "actionKeyF3");
+    }
+
+    private static class DebugRendererFields
+    {
+        private static final MethodHandle GET_COLLISION_BOX = findGetter(DebugRenderer.class, "field_191326_j", "collisionBoxEnabled");
+        private static final MethodHandle SET_COLLISION_BOX = findSetter(DebugRenderer.class, "field_191326_j", "collisionBoxEnabled");
+        private static final MethodHandle GET_HEIGHT_MAP    = findGetter(DebugRenderer.class, "field_190082_h", "heightMapEnabled");
+        private static final MethodHandle SET_HEIGHT_MAP    = findSetter(DebugRenderer.class, "field_190082_h", "heightMapEnabled");
+        private static final MethodHandle GET_NEIGHBORS    = findGetter(DebugRenderer.class, "field_191558_l", "neighborsUpdateEnabled");
+        private static final MethodHandle SET_NEIGHBORS    = findSetter(DebugRenderer.class, "field_191558_l", "neighborsUpdateEnabled");
+        private static final MethodHandle GET_PATHFINDING  = findGetter(DebugRenderer.class, "field_190080_f", "pathfindingEnabled");
+        private static final MethodHandle SET_PATHFINDING  = findSetter(DebugRenderer.class, "field_190080_f", "pathfindingEnabled");
+        private static final MethodHandle GET_SOLID_FACE   = findGetter(DebugRenderer.class, "field_193853_n", "solidFaceEnabled");
+        private static final MethodHandle SET_SOLID_FACE   = findSetter(DebugRenderer.class, "field_193853_n", "solidFaceEnabled");
+        private static final MethodHandle GET_WATER        = findGetter(DebugRenderer.class, "field_190081_g", "waterEnabled");
+        private static final MethodHandle SET_WATER        = findSetter(DebugRenderer.class, "field_190081_g", "waterEnabled");
+    }
+
+    private static class MinecraftServerFields
+    {
+        private static final MethodHandle GET_SERVER_THREAD = findGetter(MinecraftServer.class, "field_175590_aa", "serverThread");
+    }
+
+    private static class PathNavigateFields
+    {
+        private static final MethodHandle GET_MAX_DISTANCE_TO_WAYPOINT = findGetter(PathNavigate.class, "field_188561_o", "maxDistanceToWaypoint");
+    }
+
+    private static class RenderGlobalMethods
+    {
+        private static final MethodHandle GET_RENDERED_CHUNKS = findMethod(RenderGlobal.class, "func_184382_g", "getRenderedChunks");
+    }
+
+    public static void setActionKeyF3(Minecraft mc, boolean value)
+    {
+        final MethodHandle handle = MinecraftFields.SET_ACTION_KEY_F3;
+
+        if (handle != null)
+        {
+            try
+            {
+                handle.invokeExact(mc, value);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.warn("Failed to set Minecraft#actionKeyF3", t);
+            }
+        }
+    }
+
+    /**
+     * @param debugMask one of the InputEventHandler.MASK_DEBUG_* values
+     * @return true if the given vanilla debug renderer is enabled
+     */
+    public static boolean isDebugRendererEnabled(DebugRenderer renderer, int debugMask)
+    {
+        final MethodHandle handle = getDebugRendererGetter(debugMask);
+
+        if (handle != null)
+        {
+            try
+            {
+                return (boolean) handle.invokeExact(renderer);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.warn("Failed to get the state of a debug renderer", t);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param debugMask one of the InputEventHandler.MASK_DEBUG_* values
+     */
+    public static void setDebugRendererEnabled(DebugRenderer renderer, int debugMask, boolean enabled)
+    {
+        final MethodHandle handle = getDebugRendererSetter(debugMask);
+
+        if (handle != null)
+        {
+            try
+            {
+                handle.invokeExact(renderer, enabled);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.warn("Failed to set the state of a debug renderer", t);
+            }
+        }
+    }
+
+    /**
+     * @return the server's main thread, or null if it couldn't be read
+     */
+    public static Thread getServerThread(MinecraftServer server)
+    {
+        final MethodHandle handle = MinecraftServerFields.GET_SERVER_THREAD;
+
+        if (handle != null)
+        {
+            try
+            {
+                return (Thread) handle.invokeExact(server);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.warn("Failed to get MinecraftServer#serverThread", t);
+            }
+        }
+
+        return null;
+    }
+
+    public static float getMaxDistanceToWaypoint(PathNavigate navigator)
+    {
+        final MethodHandle handle = PathNavigateFields.GET_MAX_DISTANCE_TO_WAYPOINT;
+
+        if (handle != null)
+        {
+            try
+            {
+                return (float) handle.invokeExact(navigator);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.warn("Failed to get PathNavigate#maxDistanceToWaypoint", t);
+            }
+        }
+
+        return 0f;
+    }
+
+    /**
+     * @return the number of rendered chunk sections, or -1 if it couldn't be read
+     */
+    public static int getRenderedChunks(RenderGlobal renderGlobal)
+    {
+        final MethodHandle handle = RenderGlobalMethods.GET_RENDERED_CHUNKS;
+
+        if (handle != null)
+        {
+            try
+            {
+                return (int) handle.invokeExact(renderGlobal);
+            }
+            catch (Throwable t)
+            {
+                MiniHud.logger.error("Error while trying invoke RenderGlobal#getRenderedChunks()", t);
+            }
+        }
+
+        return -1;
+    }
+
+    private static MethodHandle getDebugRendererGetter(int debugMask)
+    {
+        switch (debugMask)
+        {
+            case InputEventHandler.MASK_DEBUG_COLLISION_BOXES:  return DebugRendererFields.GET_COLLISION_BOX;
+            case InputEventHandler.MASK_DEBUG_HEIGHT_MAP:       return DebugRendererFields.GET_HEIGHT_MAP;
+            case InputEventHandler.MASK_DEBUG_NEIGHBOR_UPDATE:  return DebugRendererFields.GET_NEIGHBORS;
+            case InputEventHandler.MASK_DEBUG_PATHFINDING:      return DebugRendererFields.GET_PATHFINDING;
+            case InputEventHandler.MASK_DEBUG_SOLID_FACES:      return DebugRendererFields.GET_SOLID_FACE;
+            case InputEventHandler.MASK_DEBUG_WATER:            return DebugRendererFields.GET_WATER;
+            default:                                            return null;
+        }
+    }
+
+    private static MethodHandle getDebugRendererSetter(int debugMask)
+    {
+        switch (debugMask)
+        {
+            case InputEventHandler.MASK_DEBUG_COLLISION_BOXES:  return DebugRendererFields.SET_COLLISION_BOX;
+            case InputEventHandler.MASK_DEBUG_HEIGHT_MAP:       return DebugRendererFields.SET_HEIGHT_MAP;
+            case InputEventHandler.MASK_DEBUG_NEIGHBOR_UPDATE:  return DebugRendererFields.SET_NEIGHBORS;
+            case InputEventHandler.MASK_DEBUG_PATHFINDING:      return DebugRendererFields.SET_PATHFINDING;
+            case InputEventHandler.MASK_DEBUG_SOLID_FACES:      return DebugRendererFields.SET_SOLID_FACE;
+            case InputEventHandler.MASK_DEBUG_WATER:            return DebugRendererFields.SET_WATER;
+            default:                                            return null;
+        }
+    }
+
+    private static MethodHandle findGetter(Class<?> clazz, String... fieldNames)
+    {
+        final long start = System.nanoTime();
+
+        try
+        {
+            Field field = ReflectionHelper.findField(clazz, fieldNames);
+            return MethodHandles.lookup().unreflectGetter(field);
+        }
+        catch (Exception e)
+        {
+            MiniHud.logger.warn("Failed to get a getter for {}#{}", clazz.getSimpleName(), fieldNames[fieldNames.length - 1], e);
+            return null;
+        }
+        finally
+        {
+            InitTimings.recordLookup(clazz.getSimpleName() + "#" + fieldNames[fieldNames.length - 1] + " (get)", System.nanoTime() - start);
+        }
+    }
+
+    private static MethodHandle findSetter(Class<?> clazz, String... fieldNames)
+    {
+        final long start = System.nanoTime();
+
+        try
+        {
+            Field field = ReflectionHelper.findField(clazz, fieldNames);
+            return MethodHandles.lookup().unreflectSetter(field);
+        }
+        catch (Exception e)
+        {
+            MiniHud.logger.warn("Failed to get a setter for {}#{}", clazz.getSimpleName(), fieldNames[fieldNames.length - 1], e);
+            return null;
+        }
+        finally
+        {
+            InitTimings.recordLookup(clazz.getSimpleName() + "#" + fieldNames[fieldNames.length - 1] + " (set)", System.nanoTime() - start);
+        }
+    }
+
+    private static MethodHandle findMethod(Class<?> clazz, String... methodNames)
+    {
+        final long start = System.nanoTime();
+
+        try
+        {
+            return MethodHandleUtils.getMethodHandleVirtual(clazz, methodNames);
+        }
+        catch (Exception e)
+        {
+            MiniHud.logger.error("Failed to get a MethodHandle for {}#{}()", clazz.getSimpleName(), methodNames[methodNames.length - 1], e);
+            return null;
+        }
+        finally
+        {
+            InitTimings.recordLookup(clazz.getSimpleName() + "#" + methodNames[methodNames.length - 1] + "()", System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,696 @@
+package fi.dy.masa.minihud.util;
+
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A user configurable format string compiled once into a list of literal segments
+ * and typed placeholders, so that formatting a line only needs to execute the
+ * segments against the current values.
+ * The programs hold their own scratch state, so they must only be used from one thread.
+ */
+public class FormatProgram
+{
+    private static final Pattern PATTERN_PRINTF = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+    private static final double[][] SAMPLE_NUMBERS = new double[][] {
+        { 0d, 0d, 0d },
+        { 123.456789d, 64d, -789.0125d },
+        { -0.04d, 255.99999d, 29999999.5d },
+        { 1.005d, 0.15d, -2.675d },
+        { -1234567.891d, -64.5d, 0.5d }
+    };
+    private static final long[] SAMPLE_TIMES = new long[] { 0L, 1234567890123L, 1500000000000L, 1546300799999L, 1561939200000L };
+    private static final double[] NO_VALUES = new double[0];
+
+    private final String format;
+    private final Segment[] segments;
+    private final Calendar calendar;
+
+    private FormatProgram(String format, List<Segment> segments, Calendar calendar)
+    {
+        this.format = format;
+        this.segments = segments.toArray(new Segment[segments.size()]);
+        this.calendar = calendar;
+    }
+
+    public String getFormat()
+    {
+        return this.format;
+    }
+
+    /**
+     * Executes the program, taking the placeholder values from the given array
+     */
+    public LineBuilder execute(LineBuilder out, double... values)
+    {
+        for (Segment segment : this.segments)
+        {
+            segment.write(out, values, this.calendar);
+        }
+
+        return out;
+    }
+
+    /**
+     * Executes a date format program for the given time
+     */
+    public LineBuilder executeTime(LineBuilder out, long timeMillis)
+    {
+        if (this.calendar != null)
+        {
+            this.calendar.setTimeInMillis(timeMillis);
+        }
+
+        return this.execute(out, NO_VALUES);
+    }
+
+    /**
+     * Creates a program that always outputs the given text
+     */
+    public static FormatProgram literal(String text)
+    {
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new SegmentLiteral(text));
+        return new FormatProgram(text, segments, null);
+    }
+
+    /**
+     * Compiles a String.format() style format string that takes <b>argumentCount</b> double arguments.
+     * The commonly used conversions (%f, %s, %n and %%) are compiled into segments, anything else
+     * that String.format() accepts is passed to String.format() as a whole.
+     * @throws IllegalArgumentException if the format string is not valid for the given number of double arguments
+     */
+    public static FormatProgram compileNumberFormat(String format, int argumentCount) throws IllegalArgumentException
+    {
+        Object[] sampleArgs = new Object[argumentCount];
+
+        for (int i = 0; i < argumentCount; i++)
+        {
+            sampleArgs[i] = Double.valueOf(0d);
+        }
+
+        try
+        {
+            String.format(format, sampleArgs);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException(e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+        }
+
+        List<Segment> segments = parseNumberFormat(format, argumentCount);
+        FormatProgram program = segments != null ? new FormatProgram(format, segments, null) : null;
+
+        // Verify the compiled segments against String.format(), and use the
+        // fallback if they don't match (for example due to an unsupported Locale)
+        if (program == null || program.matchesNumberFormat(argumentCount) == false)
+        {
+            segments = new ArrayList<>();
+            segments.add(new SegmentStringFormat(format, argumentCount));
+            program = new FormatProgram(format, segments, null);
+        }
+
+        return program;
+    }
+
+    /**
+     * Compiles a format string with {NAME} style placeholders. The value for each
+     * placeholder is taken from the value array at the same index as the name,
+     * and zero padded to the given minimum number of digits.
+     * Unknown placeholders are kept as literal text.
+     */
+    public static FormatProgram compilePlaceholderFormat(String format, String[] names, int[] minDigits)
+    {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+
+        while (i < format.length())
+        {
+            int index = -1;
+
+            if (format.charAt(i) == '{')
+            {
+                for (int n = 0; n < names.length; n++)
+                {
+                    if (format.startsWith(names[n] + "}", i + 1))
+                    {
+                        index = n;
+                        break;
+                    }
+                }
+            }
+
+            if (index >= 0)
+            {
+                addLiteral(segments, literal);
+                segments.add(new SegmentInteger(index, minDigits[index]));
+                i += names[index].length() + 2;
+            }
+            else
+            {
+                literal.append(format.charAt(i++));
+            }
+        }
+
+        addLiteral(segments, literal);
+
+        return new FormatProgram(format, segments, null);
+    }
+
+    /**
+     * Compiles a SimpleDateFormat pattern. The common date and time fields are compiled
+     * into segments, other patterns use one cached SimpleDateFormat instance.
+     * @throws IllegalArgumentException if the pattern is not a valid SimpleDateFormat pattern
+     */
+    public static FormatProgram compileDateFormat(String pattern) throws IllegalArgumentException
+    {
+        SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+        Calendar calendar = (Calendar) sdf.getCalendar().clone();
+        List<Segment> segments = parseDateFormat(pattern, sdf.getDateFormatSymbols());
+        FormatProgram program = segments != null ? new FormatProgram(pattern, segments, calendar) : null;
+
+        if (program == null || program.matchesDateFormat(sdf) == false)
+        {
+            segments = new ArrayList<>();
+            segments.add(new SegmentSimpleDateFormat(sdf));
+            program = new FormatProgram(pattern, segments, calendar);
+        }
+
+        return program;
+    }
+
+    private boolean matchesNumberFormat(int argumentCount)
+    {
+        LineBuilder builder = new LineBuilder();
+        double[] values = new double[argumentCount];
+        Object[] args = new Object[argumentCount];
+
+        for (double[] sample : SAMPLE_NUMBERS)
+        {
+            for (int i = 0; i < argumentCount; i++)
+            {
+                values[i] = sample[i % sample.length];
+                args[i] = values[i];
+            }
+
+            if (this.execute(builder.clear(), values).contentEquals(String.format(this.format, args)) == false)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean matchesDateFormat(SimpleDateFormat sdf)
+    {
+        LineBuilder builder = new LineBuilder();
+
+        for (long time : SAMPLE_TIMES)
+        {
+            this.executeTime(builder.clear(), time);
+
+            if (builder.contentEquals(sdf.format(new Date(time))) == false)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<Segment> parseNumberFormat(String format, int argumentCount)
+    {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        Matcher matcher = PATTERN_PRINTF.matcher(format);
+        int nextArg = 0;
+        int lastArg = -1;
+        int pos = 0;
+
+        while (matcher.find())
+        {
+            literal.append(format, pos, matcher.start());
+            pos = matcher.end();
+
+            String index = matcher.group(1);
+            String flags = matcher.group(2) != null ? matcher.group(2) : "";
+            int width = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : -1;
+            int precision = matcher.group(4) != null ? Integer.parseInt(matcher.group(4).substring(1)) : -1;
+            char conversion = matcher.group(6).charAt(0);
+
+            if (matcher.group(5) != null)
+            {
+                return null;
+            }
+
+            if (conversion == '%' || conversion == 'n')
+            {
+                if (index != null || flags.isEmpty() == false || width >= 0 || precision >= 0)
+                {
+                    return null;
+                }
+
+                literal.append(conversion == '%' ? "%" : System.lineSeparator());
+                continue;
+            }
+
+            int arg;
+
+            if (flags.indexOf('<') >= 0)
+            {
+                arg = lastArg;
+                flags = flags.replace("<", "");
+            }
+            else if (index != null)
+            {
+                arg = Integer.parseInt(index.substring(0, index.length() - 1)) - 1;
+            }
+            else
+            {
+                arg = nextArg++;
+            }
+
+            if (arg < 0 || arg >= argumentCount)
+            {
+                return null;
+            }
+
+            lastArg = arg;
+            Segment segment = null;
+
+            if (conversion == 'f' && flags.matches("[-+ 0]*") && precision <= 9)
+            {
+                segment = new SegmentDecimal(arg, precision >= 0 ? precision : 6, width, flags);
+            }
+            else if ((conversion == 's' || conversion == 'S') && flags.matches("-?"))
+            {
+                segment = new SegmentString(arg, width, precision, flags.indexOf('-') >= 0, conversion == 'S');
+            }
+
+            if (segment == null)
+            {
+                return null;
+            }
+
+            addLiteral(segments, literal);
+            segments.add(segment);
+        }
+
+        literal.append(format, pos, format.length());
+        addLiteral(segments, literal);
+
+        return segments;
+    }
+
+    private static List<Segment> parseDateFormat(String pattern, DateFormatSymbols symbols)
+    {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        final int length = pattern.length();
+        int i = 0;
+
+        while (i < length)
+        {
+            char c = pattern.charAt(i);
+
+            if (c == '\'')
+            {
+                // Two single quotes represent one literal single quote, both inside and outside of quoted text
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'')
+                {
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+
+                i++;
+
+                while (i < length)
+                {
+                    c = pattern.charAt(i);
+
+                    if (c == '\'')
+                    {
+                        if (i + 1 < length && pattern.charAt(i + 1) == '\'')
+                        {
+                            literal.append('\'');
+                            i += 2;
+                            continue;
+                        }
+
+                        break;
+                    }
+
+                    literal.append(c);
+                    i++;
+                }
+
+                i++;
+            }
+            else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))
+            {
+                int count = 1;
+
+                while (i + count < length && pattern.charAt(i + count) == c)
+                {
+                    count++;
+                }
+
+                Segment segment = createDateSegment(c, count, symbols);
+
+                if (segment == null)
+                {
+                    return null;
+                }
+
+                addLiteral(segments, literal);
+                segments.add(segment);
+                i += count;
+            }
+            else
+            {
+                literal.append(c);
+                i++;
+            }
+        }
+
+        addLiteral(segments, literal);
+
+        return segments;
+    }
+
+    private static Segment createDateSegment(char letter, int count, DateFormatSymbols symbols)
+    {
+        switch (letter)
+        {
+            case 'G': return new SegmentDateText(Calendar.ERA, symbols.getEras());
+            case 'y': return count == 2 ? new SegmentDateField(Calendar.YEAR, 2, 100, 0) : new SegmentDateField(Calendar.YEAR, count, 0, 0);
+            case 'M':
+                if (count >= 4) { return new SegmentDateText(Calendar.MONTH, symbols.getMonths()); }
+                if (count == 3) { return new SegmentDateText(Calendar.MONTH, symbols.getShortMonths()); }
+                return new SegmentDateField(Calendar.MONTH, count, 0, 1);
+            case 'd': return new SegmentDateField(Calendar.DAY_OF_MONTH, count, 0, 0);
+            case 'D': return new SegmentDateField(Calendar.DAY_OF_YEAR, count, 0, 0);
+            case 'F': return new SegmentDateField(Calendar.DAY_OF_WEEK_IN_MONTH, count, 0, 0);
+            case 'w': return new SegmentDateField(Calendar.WEEK_OF_YEAR, count, 0, 0);
+            case 'W': return new SegmentDateField(Calendar.WEEK_OF_MONTH, count, 0, 0);
+            case 'E': return new SegmentDateText(Calendar.DAY_OF_WEEK, count >= 4 ? symbols.getWeekdays() : symbols.getShortWeekdays());
+            case 'a': return new SegmentDateText(Calendar.AM_PM, symbols.getAmPmStrings());
+            case 'H': return new SegmentDateField(Calendar.HOUR_OF_DAY, count, 0, 0);
+            case 'k': return new SegmentDateHour(Calendar.HOUR_OF_DAY, count, 24);
+            case 'K': return new SegmentDateField(Calendar.HOUR, count, 0, 0);
+            case 'h': return new SegmentDateHour(Calendar.HOUR, count, 12);
+            case 'm': return new SegmentDateField(Calendar.MINUTE, count, 0, 0);
+            case 's': return new SegmentDateField(Calendar.SECOND, count, 0, 0);
+            case 'S': return new SegmentDateField(Calendar.MILLISECOND, count, 0, 0);
+            default: return null;
+        }
+    }
+
+    private static void addLiteral(List<Segment> segments, StringBuilder literal)
+    {
+        if (literal.length() > 0)
+        {
+            segments.add(new SegmentLiteral(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private interface Segment
+    {
+        void write(LineBuilder out, double[] values, Calendar calendar);
+    }
+
+    private static class SegmentLiteral implements Segment
+    {
+        private final String text;
+
+        private SegmentLiteral(String text)
+        {
+            this.text = text;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            out.append(this.text);
+        }
+    }
+
+    private static class SegmentInteger implements Segment
+    {
+        private final int index;
+        private final int minDigits;
+
+        private SegmentInteger(int index, int minDigits)
+        {
+            this.index = index;
+            this.minDigits = minDigits;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            out.appendZeroPadded((long) values[this.index], this.minDigits);
+        }
+    }
+
+    private static class SegmentDecimal implements Segment
+    {
+        private final LineBuilder scratch = new LineBuilder(32);
+        private final int index;
+        private final int precision;
+        private final int width;
+        private final boolean leftAlign;
+        private final boolean zeroPad;
+        private final boolean plus;
+        private final boolean space;
+
+        private SegmentDecimal(int index, int precision, int width, String flags)
+        {
+            this.index = index;
+            this.precision = precision;
+            this.width = width;
+            this.leftAlign = flags.indexOf('-') >= 0;
+            this.zeroPad = flags.indexOf('0') >= 0;
+            this.plus = flags.indexOf('+') >= 0;
+            this.space = flags.indexOf(' ') >= 0;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            double value = values[this.index];
+            char sign = 0;
+
+            if (Double.isNaN(value) == false)
+            {
+                if (Double.doubleToRawLongBits(value) < 0)
+                {
+                    sign = '-';
+                    value = -value;
+                }
+                else if (this.plus)
+                {
+                    sign = '+';
+                }
+                else if (this.space)
+                {
+                    sign = ' ';
+                }
+            }
+
+            this.scratch.clear().append(value, this.precision);
+            int padding = this.width - this.scratch.length() - (sign != 0 ? 1 : 0);
+
+            if (this.leftAlign == false && this.zeroPad == false)
+            {
+                out.appendRepeated(' ', padding);
+            }
+
+            if (sign != 0)
+            {
+                out.append(sign);
+            }
+
+            if (this.zeroPad)
+            {
+                out.appendRepeated(LineBuilder.getZeroDigit(), padding);
+            }
+
+            out.append(this.scratch);
+
+            if (this.leftAlign)
+            {
+                out.appendRepeated(' ', padding);
+            }
+        }
+    }
+
+    private static class SegmentString implements Segment
+    {
+        private final int index;
+        private final int width;
+        private final int precision;
+        private final boolean leftAlign;
+        private final boolean upperCase;
+
+        private SegmentString(int index, int width, int precision, boolean leftAlign, boolean upperCase)
+        {
+            this.index = index;
+            this.width = width;
+            this.precision = precision;
+            this.leftAlign = leftAlign;
+            this.upperCase = upperCase;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            String str = Double.toString(values[this.index]);
+
+            if (this.precision >= 0 && this.precision < str.length())
+            {
+                str = str.substring(0, this.precision);
+            }
+
+            if (this.upperCase)
+            {
+                str = str.toUpperCase(Locale.getDefault(Locale.Category.FORMAT));
+            }
+
+            int padding = this.width - str.length();
+
+            if (this.leftAlign == false)
+            {
+                out.appendRepeated(' ', padding);
+            }
+
+            out.append(str);
+
+            if (this.leftAlign)
+            {
+                out.appendRepeated(' ', padding);
+            }
+        }
+    }
+
+    private static class SegmentStringFormat implements Segment
+    {
+        private final String format;
+        private final Object[] args;
+
+        private SegmentStringFormat(String format, int argumentCount)
+        {
+            this.format = format;
+            this.args = new Object[argumentCount];
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            for (int i = 0; i < this.args.length; i++)
+            {
+                this.args[i] = values[i];
+            }
+
+            out.append(String.format(this.format, this.args));
+        }
+    }
+
+    private static class SegmentDateField implements Segment
+    {
+        private final int field;
+        private final int minDigits;
+        private final int modulo;
+        private final int offset;
+
+        private SegmentDateField(int field, int minDigits, int modulo, int offset)
+        {
+            this.field = field;
+            this.minDigits = minDigits;
+            this.modulo = modulo;
+            this.offset = offset;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            int value = calendar.get(this.field) + this.offset;
+
+            if (this.modulo > 0)
+            {
+                value %= this.modulo;
+            }
+
+            out.appendZeroPadded(value, this.minDigits);
+        }
+    }
+
+    private static class SegmentDateHour implements Segment
+    {
+        private final int field;
+        private final int minDigits;
+        private final int valueForZero;
+
+        private SegmentDateHour(int field, int minDigits, int valueForZero)
+        {
+            this.field = field;
+            this.minDigits = minDigits;
+            this.valueForZero = valueForZero;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            int value = calendar.get(this.field);
+            out.appendZeroPadded(value == 0 ? this.valueForZero : value, this.minDigits);
+        }
+    }
+
+    private static class SegmentDateText implements Segment
+    {
+        private final int field;
+        private final String[] names;
+
+        private SegmentDateText(int field, String[] names)
+        {
+            this.field = field;
+            this.names = names;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            int value = calendar.get(this.field);
+            out.append(value >= 0 && value < this.names.length ? this.names[value] : "");
+        }
+    }
+
+    private static class SegmentSimpleDateFormat implements Segment
+    {
+        private final SimpleDateFormat sdf;
+        private final Date date = new Date();
+
+        private SegmentSimpleDateFormat(SimpleDateFormat sdf)
+        {
+            this.sdf = sdf;
+        }
+
+        @Override
+        public void write(LineBuilder out, double[] values, Calendar calendar)
+        {
+            this.date.setTime(calendar.getTimeInMillis());
+            out.append(this.sdf.format(this.date));
+        }
+    }
+}
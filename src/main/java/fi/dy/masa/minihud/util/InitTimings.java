@@ -0,0 +1,86 @@
+package fi.dy.masa.minihud.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import fi.dy.masa.minihud.MiniHud;
+
+/**
+ * Records how long the mod initialization steps and the (lazy) reflection lookups took.
+ * The report is logged at the end of the mod initialization, and the totals can be shown on the HUD.
+ */
+public class InitTimings
+{
+    private static final Map<String, Long> INIT_STEPS = new LinkedHashMap<String, Long>();
+    private static final Map<String, Long> LOOKUPS = new LinkedHashMap<String, Long>();
+    private static long initNanos;
+    private static long lookupNanos;
+
+    public static synchronized void recordInitStep(String name, long nanos)
+    {
+        INIT_STEPS.put(name, nanos);
+        initNanos += nanos;
+    }
+
+    public static synchronized void recordLookup(String name, long nanos)
+    {
+        LOOKUPS.put(name, nanos);
+        lookupNanos += nanos;
+        MiniHud.logger.debug("Resolved {} in {} ms", name, formatMillis(nanos));
+    }
+
+    /**
+     * @return the total time of the recorded mod initialization steps, in nanoseconds
+     */
+    public static synchronized long getInitNanos()
+    {
+        return initNanos;
+    }
+
+    /**
+     * @return the total time spent on the reflection lookups so far, in nanoseconds
+     */
+    public static synchronized long getLookupNanos()
+    {
+        return lookupNanos;
+    }
+
+    public static synchronized int getLookupCount()
+    {
+        return LOOKUPS.size();
+    }
+
+    public static synchronized List<String> getReport()
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add("Mod initialization: " + formatMillis(initNanos) + " ms");
+
+        for (Map.Entry<String, Long> entry : INIT_STEPS.entrySet())
+        {
+            lines.add("  " + entry.getKey() + ": " + formatMillis(entry.getValue()) + " ms");
+        }
+
+        lines.add("Reflection lookups: " + LOOKUPS.size() + " in " + formatMillis(lookupNanos) + " ms");
+
+        for (Map.Entry<String, Long> entry : LOOKUPS.entrySet())
+        {
+            lines.add("  " + entry.getKey() + ": " + formatMillis(entry.getValue()) + " ms");
+        }
+
+        return lines;
+    }
+
+    public static void logReport()
+    {
+        for (String line : getReport())
+        {
+            MiniHud.logger.info(line);
+        }
+    }
+
+    public static String formatMillis(long nanos)
+    {
+        return String.format("%.2f", nanos / 1000000d);
+    }
+}
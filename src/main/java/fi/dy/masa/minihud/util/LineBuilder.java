@@ -0,0 +1,313 @@
+package fi.dy.masa.minihud.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A reusable character buffer for building the HUD lines without
+ * going through String.format() and a new StringBuilder for every line.
+ * The number appenders produce the same output as the corresponding
+ * String.format() patterns (%d, %5d, %02d, %.Nf) in the default locale.
+ */
+public class LineBuilder
+{
+    private static final double[] POW10 = new double[] { 1d, 10d, 100d, 1000d, 10000d, 100000d, 1000000d, 10000000d, 100000000d, 1000000000d };
+    private static final Locale LOCALE = Locale.getDefault(Locale.Category.FORMAT);
+    private static final char DECIMAL_SEPARATOR = DecimalFormatSymbols.getInstance(LOCALE).getDecimalSeparator();
+    private static final char ZERO_DIGIT = DecimalFormatSymbols.getInstance(LOCALE).getZeroDigit();
+
+    private final char[] digits = new char[20];
+    private char[] buffer;
+    private int length;
+
+    public LineBuilder()
+    {
+        this(128);
+    }
+
+    public LineBuilder(int initialCapacity)
+    {
+        this.buffer = new char[Math.max(initialCapacity, 16)];
+    }
+
+    public LineBuilder clear()
+    {
+        this.length = 0;
+        return this;
+    }
+
+    public int length()
+    {
+        return this.length;
+    }
+
+    public LineBuilder append(char c)
+    {
+        this.ensureCapacity(this.length + 1);
+        this.buffer[this.length++] = c;
+        return this;
+    }
+
+    public LineBuilder append(String str)
+    {
+        if (str == null)
+        {
+            str = "null";
+        }
+
+        int len = str.length();
+        this.ensureCapacity(this.length + len);
+        str.getChars(0, len, this.buffer, this.length);
+        this.length += len;
+
+        return this;
+    }
+
+    public LineBuilder append(Object obj)
+    {
+        return this.append(String.valueOf(obj));
+    }
+
+    public LineBuilder append(LineBuilder other)
+    {
+        this.ensureCapacity(this.length + other.length);
+        System.arraycopy(other.buffer, 0, this.buffer, this.length, other.length);
+        this.length += other.length;
+
+        return this;
+    }
+
+    public LineBuilder appendRepeated(char c, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            this.append(c);
+        }
+
+        return this;
+    }
+
+    public LineBuilder append(int value)
+    {
+        return this.append((long) value);
+    }
+
+    public LineBuilder append(long value)
+    {
+        return this.appendPadded(value, 0, ' ');
+    }
+
+    /**
+     * Appends the value right aligned to the given width, like %5d
+     */
+    public LineBuilder appendPadded(long value, int width)
+    {
+        return this.appendPadded(value, width, ' ');
+    }
+
+    /**
+     * Appends the value zero padded to the given width, like %02d
+     */
+    public LineBuilder appendZeroPadded(long value, int width)
+    {
+        return this.appendPadded(value, width, ZERO_DIGIT);
+    }
+
+    private LineBuilder appendPadded(long value, int width, char padding)
+    {
+        boolean negative = value < 0;
+        int count = this.writeDigits(value);
+        int total = count + (negative ? 1 : 0);
+
+        // Formatter puts the sign before the zero padding, but after the space padding
+        if (negative && padding != ' ')
+        {
+            this.append('-');
+        }
+
+        for (int i = total; i < width; i++)
+        {
+            this.append(padding);
+        }
+
+        if (negative && padding == ' ')
+        {
+            this.append('-');
+        }
+
+        return this.appendDigits(count);
+    }
+
+    /**
+     * Appends the value with a fixed number of decimals, matching String.format("%.Nf").
+     * The (rare) values that are too large, or that lie too close to a rounding
+     * boundary to be rounded reliably in floating point, are handed over to BigDecimal.
+     */
+    public LineBuilder append(double value, int decimals)
+    {
+        if (Double.isNaN(value))
+        {
+            return this.append("NaN");
+        }
+
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+
+        if (Double.isInfinite(value))
+        {
+            return this.append(negative ? "-Infinity" : "Infinity");
+        }
+
+        double abs = Math.abs(value);
+        decimals = Math.min(Math.max(decimals, 0), POW10.length - 1);
+        double scaled = abs * POW10[decimals];
+
+        if (scaled >= 1e15)
+        {
+            return this.appendDecimalSlow(value, decimals);
+        }
+
+        double floor = Math.floor(scaled);
+        double frac = scaled - floor;
+        double ambiguity = (Math.ulp(abs) * POW10[decimals] + Math.ulp(scaled)) * 2d;
+
+        if (Math.abs(frac - 0.5d) <= ambiguity)
+        {
+            return this.appendDecimalSlow(value, decimals);
+        }
+
+        long rounded = (long) floor + (frac > 0.5d ? 1 : 0);
+        long divisor = (long) POW10[decimals];
+
+        if (negative)
+        {
+            this.append('-');
+        }
+
+        this.appendDigits(this.writeDigits(rounded / divisor));
+
+        if (decimals > 0)
+        {
+            this.append(DECIMAL_SEPARATOR);
+            this.appendZeroPaddedFraction(rounded % divisor, decimals);
+        }
+
+        return this;
+    }
+
+    private LineBuilder appendDecimalSlow(double value, int decimals)
+    {
+        BigDecimal bd = new BigDecimal(Double.toString(Math.abs(value))).setScale(decimals, RoundingMode.HALF_UP);
+        String str = bd.toPlainString();
+
+        if (Double.doubleToRawLongBits(value) < 0)
+        {
+            this.append('-');
+        }
+
+        for (int i = 0; i < str.length(); i++)
+        {
+            char c = str.charAt(i);
+
+            if (c == '.')
+            {
+                this.append(DECIMAL_SEPARATOR);
+            }
+            else
+            {
+                this.append((char) (ZERO_DIGIT + (c - '0')));
+            }
+        }
+
+        return this;
+    }
+
+    private void appendZeroPaddedFraction(long fraction, int decimals)
+    {
+        int count = this.writeDigits(fraction);
+
+        for (int i = count; i < decimals; i++)
+        {
+            this.append(ZERO_DIGIT);
+        }
+
+        this.appendDigits(count);
+    }
+
+    /**
+     * Writes the digits of the absolute value into the digit scratch buffer, in reverse order.
+     * @return the number of digits written
+     */
+    private int writeDigits(long value)
+    {
+        int count = 0;
+
+        do
+        {
+            // Negating the remainder instead of the value handles Long.MIN_VALUE
+            int digit = (int) (value % 10);
+            this.digits[count++] = (char) (ZERO_DIGIT + (digit < 0 ? -digit : digit));
+            value /= 10;
+        }
+        while (value != 0);
+
+        return count;
+    }
+
+    private LineBuilder appendDigits(int count)
+    {
+        this.ensureCapacity(this.length + count);
+
+        for (int i = count - 1; i >= 0; i--)
+        {
+            this.buffer[this.length++] = this.digits[i];
+        }
+
+        return this;
+    }
+
+    /**
+     * @return true if the current contents are equal to the given string
+     */
+    public boolean contentEquals(String str)
+    {
+        if (str == null || str.length() != this.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.length; i++)
+        {
+            if (this.buffer[i] != str.charAt(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the zero digit of the default formatting locale, used for the zero padding
+     */
+    public static char getZeroDigit()
+    {
+        return ZERO_DIGIT;
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > this.buffer.length)
+        {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length * 2));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(this.buffer, 0, this.length);
+    }
+}
@@ -0,0 +1,249 @@
+package fi.dy.masa.minihud.util;
+
+import java.util.Arrays;
+
+/**
+ * Builds the glyph quads for text drawn with the ASCII page of the default font,
+ * using the same glyph layout and colors as the vanilla FontRenderer.
+ * This doesn't depend on the renderer or on a GL context, the vertices are just
+ * stored as the x, y, u, v and ARGB color values, for the caller to upload as it sees fit.
+ * Only the printable ASCII characters and the color and reset formatting codes are supported,
+ * any other text needs to be drawn with the FontRenderer instead.
+ */
+public class TextGeometry
+{
+    /** The number of values per vertex: x, y, u, v and the ARGB color */
+    public static final int VERTEX_SIZE = 5;
+    public static final int FIRST_CHAR = 32;
+    public static final int LAST_CHAR = 126;
+    public static final char FORMATTING_CHAR = '\u00a7';
+    private static final String COLOR_CODES = "0123456789abcdef";
+    /** The 16 text colors, followed by their shadow colors */
+    private static final int[] COLORS = createColors();
+    private static final float GLYPH_HEIGHT = 7.99f;
+    private static final float TEXTURE_SIZE = 128f;
+
+    private final int[] charWidths = new int[LAST_CHAR + 1];
+    private int[] data = new int[VERTEX_SIZE * 4 * 256];
+    private int vertexCount;
+
+    public void setCharWidth(char c, int width)
+    {
+        if (c >= FIRST_CHAR && c <= LAST_CHAR)
+        {
+            this.charWidths[c] = width;
+        }
+    }
+
+    public int getCharWidth(char c)
+    {
+        return c >= FIRST_CHAR && c <= LAST_CHAR ? this.charWidths[c] : 0;
+    }
+
+    /**
+     * @return true if the given text only uses characters and formatting codes that this class can build the glyphs for
+     */
+    public static boolean isSupported(String text)
+    {
+        final int length = text.length();
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+
+            if (c == FORMATTING_CHAR)
+            {
+                if (i + 1 >= length || getFormattingCode(text.charAt(i + 1)) == -2)
+                {
+                    return false;
+                }
+
+                i++;
+            }
+            else if (c < FIRST_CHAR || c > LAST_CHAR)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the glyph quads for the given text, like FontRenderer.drawString(text, x, y, color, shadow) would draw it.
+     * @return false if the text is not supported, in which case nothing was added
+     */
+    public boolean addString(String text, float x, float y, int color, boolean shadow)
+    {
+        if (isSupported(text) == false)
+        {
+            return false;
+        }
+
+        // Same as in the FontRenderer, a fully transparent color means opaque
+        if ((color & 0xFC000000) == 0)
+        {
+            color |= 0xFF000000;
+        }
+
+        if (shadow)
+        {
+            this.addText(text, x + 1f, y + 1f, ((color & 0xFCFCFC) >> 2) | (color & 0xFF000000), true);
+        }
+
+        this.addText(text, x, y, color, false);
+
+        return true;
+    }
+
+    private void addText(String text, float x, float y, int baseColor, boolean shadow)
+    {
+        final int length = text.length();
+        final int alpha = baseColor & 0xFF000000;
+        int color = baseColor;
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+
+            if (c == FORMATTING_CHAR)
+            {
+                int code = getFormattingCode(text.charAt(++i));
+                color = code >= 0 ? (COLORS[shadow ? code + 16 : code] | alpha) : baseColor;
+                continue;
+            }
+
+            int width = this.charWidths[c];
+
+            // The space is drawn as a transparent glyph in the FontRenderer, so it can just be skipped
+            if (c != ' ' && width > 0)
+            {
+                this.addGlyph(c, x, y, width, color);
+            }
+
+            x += width;
+        }
+    }
+
+    private void addGlyph(char c, float x, float y, int width, int color)
+    {
+        final float texX = (c % 16) * 8;
+        final float texY = (c / 16) * 8;
+        final float w = width - 1.01f;
+        final float u1 = texX / TEXTURE_SIZE;
+        final float u2 = (texX + w) / TEXTURE_SIZE;
+        final float v1 = texY / TEXTURE_SIZE;
+        final float v2 = (texY + GLYPH_HEIGHT) / TEXTURE_SIZE;
+
+        this.ensureCapacity(this.vertexCount + 4);
+        this.addVertex(x    , y + GLYPH_HEIGHT, u1, v2, color);
+        this.addVertex(x + w, y + GLYPH_HEIGHT, u2, v2, color);
+        this.addVertex(x + w, y               , u2, v1, color);
+        this.addVertex(x    , y               , u1, v1, color);
+    }
+
+    private void addVertex(float x, float y, float u, float v, int color)
+    {
+        int index = this.vertexCount * VERTEX_SIZE;
+        this.data[index    ] = Float.floatToRawIntBits(x);
+        this.data[index + 1] = Float.floatToRawIntBits(y);
+        this.data[index + 2] = Float.floatToRawIntBits(u);
+        this.data[index + 3] = Float.floatToRawIntBits(v);
+        this.data[index + 4] = color;
+        this.vertexCount++;
+    }
+
+    private void ensureCapacity(int vertexCount)
+    {
+        if (vertexCount * VERTEX_SIZE > this.data.length)
+        {
+            this.data = Arrays.copyOf(this.data, Math.max(vertexCount * VERTEX_SIZE, this.data.length * 2));
+        }
+    }
+
+    public void clear()
+    {
+        this.vertexCount = 0;
+    }
+
+    /**
+     * @return the number of vertices. Every four consecutive vertices form one quad.
+     */
+    public int getVertexCount()
+    {
+        return this.vertexCount;
+    }
+
+    public float getX(int vertex)
+    {
+        return Float.intBitsToFloat(this.data[vertex * VERTEX_SIZE]);
+    }
+
+    public float getY(int vertex)
+    {
+        return Float.intBitsToFloat(this.data[vertex * VERTEX_SIZE + 1]);
+    }
+
+    public float getU(int vertex)
+    {
+        return Float.intBitsToFloat(this.data[vertex * VERTEX_SIZE + 2]);
+    }
+
+    public float getV(int vertex)
+    {
+        return Float.intBitsToFloat(this.data[vertex * VERTEX_SIZE + 3]);
+    }
+
+    /**
+     * @return the ARGB color of the vertex
+     */
+    public int getColor(int vertex)
+    {
+        return this.data[vertex * VERTEX_SIZE + 4];
+    }
+
+    /**
+     * @return the index of the color code (0..15), -1 for the reset code, or -2 for the unsupported codes
+     */
+    private static int getFormattingCode(char c)
+    {
+        if (c == 'r' || c == 'R')
+        {
+            return -1;
+        }
+
+        int index = COLOR_CODES.indexOf(Character.toLowerCase(c));
+
+        return index >= 0 ? index : -2;
+    }
+
+    private static int[] createColors()
+    {
+        int[] colors = new int[32];
+
+        // The same colors as in the FontRenderer (without the anaglyph mode)
+        for (int i = 0; i < 32; i++)
+        {
+            int base = (i >> 3 & 1) * 85;
+            int r = (i >> 2 & 1) * 170 + base;
+            int g = (i >> 1 & 1) * 170 + base;
+            int b = (i & 1) * 170 + base;
+
+            if (i == 6)
+            {
+                r += 85;
+            }
+
+            if (i >= 16)
+            {
+                r /= 4;
+                g /= 4;
+                b /= 4;
+            }
+
+            colors[i] = (r & 0xFF) << 16 | (g & 0xFF) << 8 | (b & 0xFF);
+        }
+
+        return colors;
+    }
+}